@@ -0,0 +1,26 @@
+package org.zwobble.sourcetext.benchmarks;
+
+class BenchmarkTexts {
+    private static final String[] LINES = new String[] {
+        "fun example(argument: Int, other: String): Bool {\n",
+        "    // Check the argument against the limit.\n",
+        "    val result = compute(argument * 42, other.length);\n",
+        "\n",
+        "    return result > 0 && other != \"\";\n",
+        "}\n",
+    };
+
+    private BenchmarkTexts() {
+    }
+
+    static String generate(int characterLength) {
+        var builder = new StringBuilder(characterLength);
+        var lineIndex = 0;
+        while (builder.length() < characterLength) {
+            builder.append(LINES[lineIndex % LINES.length]);
+            lineIndex++;
+        }
+        builder.setLength(characterLength);
+        return builder.toString();
+    }
+}
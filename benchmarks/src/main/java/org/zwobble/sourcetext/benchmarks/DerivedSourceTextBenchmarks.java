@@ -0,0 +1,49 @@
+package org.zwobble.sourcetext.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.zwobble.sourcetext.SourcePosition;
+import org.zwobble.sourcetext.SourceText;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DerivedSourceTextBenchmarks {
+    @Param({"1", "5"})
+    public int depth;
+
+    private SourcePosition position;
+
+    @Setup
+    public void setUp() {
+        var string = BenchmarkTexts.generate(1 << 20);
+        var sourceText = SourceText.fromString("<benchmark>", string);
+
+        // Each stage prefixes the text with a single character, so each
+        // mapping subtracts one.
+        for (var stage = 0; stage < this.depth; stage++) {
+            string = "#" + string;
+            sourceText = SourceText.derived(
+                sourceText,
+                string,
+                derivedCharacterIndex -> Math.max(derivedCharacterIndex - 1, 0)
+            );
+        }
+
+        this.position = sourceText.characterPosition(string.length() / 2);
+    }
+
+    @Benchmark
+    public String positionToString() {
+        return this.position.toString();
+    }
+
+    @Benchmark
+    public String describe() {
+        return this.position.to(this.position).describe();
+    }
+}
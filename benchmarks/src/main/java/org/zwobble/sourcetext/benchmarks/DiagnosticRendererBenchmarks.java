@@ -0,0 +1,60 @@
+package org.zwobble.sourcetext.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.zwobble.sourcetext.DiagnosticRenderer;
+import org.zwobble.sourcetext.SourceRange;
+import org.zwobble.sourcetext.SourceText;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiagnosticRendererBenchmarks {
+    @Param({"1048576"})
+    public int characterLength;
+
+    @Param({"1000"})
+    public int rangeCount;
+
+    private List<SourceRange> sourceRanges;
+    private DiagnosticRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        var sourceText = SourceText.fromString(
+            "<benchmark>",
+            BenchmarkTexts.generate(this.characterLength)
+        );
+        var random = new Random(42);
+        this.sourceRanges = new ArrayList<>();
+        for (var index = 0; index < this.rangeCount; index++) {
+            var start = random.nextInt(this.characterLength - 100);
+            this.sourceRanges.add(sourceText.sourceRange(start, start + random.nextInt(100)));
+        }
+        this.renderer = DiagnosticRenderer.create().withContextLines(2);
+    }
+
+    @Benchmark
+    public int describeEach() {
+        var length = 0;
+        for (var sourceRange : this.sourceRanges) {
+            length += sourceRange.describe().length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int renderAll() throws IOException {
+        var output = new StringBuilder();
+        this.renderer.render(this.sourceRanges, output);
+        return output.length();
+    }
+}
@@ -0,0 +1,57 @@
+package org.zwobble.sourcetext.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zwobble.sourcetext.SourceText;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SourceCharacterIteratorBenchmarks {
+    @Param({"1024", "1048576", "104857600"})
+    public int characterLength;
+
+    private SourceText sourceText;
+
+    @Setup
+    public void setUp() {
+        this.sourceText = SourceText.fromString(
+            "<benchmark>",
+            BenchmarkTexts.generate(this.characterLength)
+        );
+    }
+
+    @Benchmark
+    public int peekAndSkip() {
+        var iterator = this.sourceText.characterIterator();
+        var total = 0;
+        while (!iterator.isEnd()) {
+            total += iterator.peek();
+            iterator.skip();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void characterSourceRange(Blackhole blackhole) {
+        var iterator = this.sourceText.characterIterator();
+        while (!iterator.isEnd()) {
+            blackhole.consume(iterator.characterSourceRange());
+            iterator.skip();
+        }
+    }
+
+    @Benchmark
+    public void packedCharacterSourceRange(Blackhole blackhole) {
+        var iterator = this.sourceText.characterIterator();
+        while (!iterator.isEnd()) {
+            blackhole.consume(iterator.packedCharacterSourceRange());
+            iterator.skip();
+        }
+    }
+}
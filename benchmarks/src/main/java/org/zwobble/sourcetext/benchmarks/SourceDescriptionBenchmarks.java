@@ -0,0 +1,56 @@
+package org.zwobble.sourcetext.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.zwobble.sourcetext.SourcePosition;
+import org.zwobble.sourcetext.SourceRange;
+import org.zwobble.sourcetext.SourceText;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceDescriptionBenchmarks {
+    @Param({"1048576"})
+    public int characterLength;
+
+    @Param({"start", "middle", "end"})
+    public String location;
+
+    private SourcePosition position;
+    private SourceRange sourceRange;
+
+    @Setup
+    public void setUp() {
+        var sourceText = SourceText.fromString(
+            "<benchmark>",
+            BenchmarkTexts.generate(this.characterLength)
+        );
+        var characterIndex = switch (this.location) {
+            case "start" -> 10;
+            case "middle" -> this.characterLength / 2;
+            case "end" -> this.characterLength - 10;
+            default -> throw new IllegalArgumentException(this.location);
+        };
+        this.position = sourceText.characterPosition(characterIndex);
+        this.sourceRange = sourceText.sourceRange(characterIndex, characterIndex + 5);
+    }
+
+    @Benchmark
+    public String positionToString() {
+        return this.position.toString();
+    }
+
+    @Benchmark
+    public String rangeToString() {
+        return this.sourceRange.toString();
+    }
+
+    @Benchmark
+    public String describe() {
+        return this.sourceRange.describe();
+    }
+}
@@ -0,0 +1,78 @@
+package org.zwobble.sourcetext.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.zwobble.sourcetext.SourcePosition;
+import org.zwobble.sourcetext.SourceRange;
+import org.zwobble.sourcetext.SourceRangeIndex;
+import org.zwobble.sourcetext.SourceText;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceRangeIndexBenchmarks {
+    @Param({"1048576"})
+    public int characterLength;
+
+    @Param({"100000"})
+    public int rangeCount;
+
+    private List<SourceRange> sourceRanges;
+    private SourceRangeIndex index;
+    private SourcePosition[] positions;
+    private int positionIndex = 0;
+
+    @Setup
+    public void setUp() {
+        var sourceText = SourceText.fromString(
+            "<benchmark>",
+            BenchmarkTexts.generate(this.characterLength)
+        );
+        var random = new Random(42);
+        this.sourceRanges = new ArrayList<>();
+        for (var index = 0; index < this.rangeCount; index++) {
+            var start = random.nextInt(this.characterLength - 100);
+            this.sourceRanges.add(sourceText.sourceRange(start, start + random.nextInt(100)));
+        }
+        this.index = SourceRangeIndex.create(sourceText, this.sourceRanges);
+        this.positions = new SourcePosition[1024];
+        for (var index = 0; index < this.positions.length; index++) {
+            this.positions[index] = sourceText.characterPosition(random.nextInt(this.characterLength));
+        }
+    }
+
+    private SourcePosition nextPosition() {
+        var position = this.positions[this.positionIndex];
+        this.positionIndex = (this.positionIndex + 1) & (this.positions.length - 1);
+        return position;
+    }
+
+    @Benchmark
+    public int containingByScanning() {
+        var position = nextPosition();
+        var count = 0;
+        for (var sourceRange : this.sourceRanges) {
+            if (sourceRange.contains(position)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int containingByIndex() {
+        return this.index.containing(nextPosition()).length;
+    }
+
+    @Benchmark
+    public int innermostContainingByIndex() {
+        return this.index.innermostContaining(nextPosition());
+    }
+}
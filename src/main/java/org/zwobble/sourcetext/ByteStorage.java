@@ -0,0 +1,122 @@
+package org.zwobble.sourcetext;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+
+/**
+ * Storage for text where each character is a single byte, such as ASCII or
+ * ISO-8859-1. The bytes are read in place, so a memory-mapped buffer is never
+ * copied onto the heap.
+ */
+final class ByteStorage implements SourceTextStorage {
+    static boolean isAscii(ByteBuffer bytes) {
+        var length = bytes.limit();
+        var index = 0;
+
+        for (; index + Long.BYTES <= length; index += Long.BYTES) {
+            if ((bytes.getLong(index) & 0x8080808080808080L) != 0) {
+                return false;
+            }
+        }
+
+        for (; index < length; index++) {
+            if (bytes.get(index) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Check whether every character is in ISO-8859-1, and can therefore be
+     * stored as a single byte.
+     */
+    static boolean isLatin1(CharBuffer characters) {
+        var length = characters.limit();
+        for (var index = 0; index < length; index++) {
+            if (characters.get(index) > 0xff) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Store characters that are all in ISO-8859-1 using a single byte per
+     * character.
+     */
+    static ByteStorage fromLatin1(CharBuffer characters) {
+        var length = characters.limit();
+        var bytes = new byte[length];
+        for (var index = 0; index < length; index++) {
+            bytes[index] = (byte) characters.get(index);
+        }
+        return new ByteStorage(ByteBuffer.wrap(bytes));
+    }
+
+    private final ByteBuffer bytes;
+
+    ByteStorage(ByteBuffer bytes) {
+        this.bytes = bytes.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public int length() {
+        return this.bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (this.bytes.get(index) & 0xff);
+    }
+
+    /**
+     * Find the character by reading eight bytes at a time, and checking all
+     * eight for a match at once.
+     */
+    @Override
+    public int indexOf(char character, int fromIndex) {
+        if (character > 0xff) {
+            return -1;
+        }
+
+        var length = length();
+        var index = Math.max(fromIndex, 0);
+        var pattern = 0x0101010101010101L * character;
+
+        for (; index + Long.BYTES <= length; index += Long.BYTES) {
+            var word = this.bytes.getLong(index) ^ pattern;
+            // Sets the high bit of each byte that is zero, with no false
+            // positives.
+            var zeroBytes = ~(((word & 0x7f7f7f7f7f7f7f7fL) + 0x7f7f7f7f7f7f7f7fL) | word | 0x7f7f7f7f7f7f7f7fL);
+            if (zeroBytes != 0) {
+                return index + Long.numberOfLeadingZeros(zeroBytes) / Byte.SIZE;
+            }
+        }
+
+        for (; index < length; index++) {
+            if (charAt(index) == character) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public boolean containsSurrogates() {
+        return false;
+    }
+
+    @Override
+    public CharSequence charSequence() {
+        return StorageCharSequence.of(this, 0, length());
+    }
+
+    @Override
+    public CharSequence charSequence(int startIndex, int endIndex) {
+        return StorageCharSequence.of(this, startIndex, endIndex);
+    }
+}
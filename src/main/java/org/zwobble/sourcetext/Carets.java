@@ -0,0 +1,65 @@
+package org.zwobble.sourcetext;
+
+import java.io.IOException;
+
+/**
+ * Writes carets under the characters of a line, so that the carets line up
+ * with the characters when displayed. Tabs in the line are copied into the
+ * padding before the carets, and wide and zero-width characters are padded
+ * by their display width, so the carets line up whatever the tab width.
+ */
+final class Carets {
+    private static final String SPACES = " ".repeat(64);
+    private static final String CARETS = "^".repeat(64);
+
+    private Carets() {
+    }
+
+    /**
+     * Write carets under the characters of the line from the start offset to
+     * the end offset. The end offset may be past the end of the line, in
+     * which case one caret is written for each character past the end of the
+     * line. At least one caret is always written.
+     */
+    static void append(
+        Appendable output,
+        CharSequence line,
+        int startOffset,
+        int endOffset
+    ) throws IOException {
+        var lineLength = line.length();
+        var paddingEnd = Math.min(startOffset, lineLength);
+        var spaceCount = 0;
+        var offset = 0;
+        while (offset < paddingEnd) {
+            var codePoint = Character.codePointAt(line, offset);
+            if (codePoint == '\t') {
+                appendRepeated(output, SPACES, spaceCount);
+                spaceCount = 0;
+                output.append('\t');
+            } else {
+                spaceCount += ColumnMode.codePointWidth(codePoint);
+            }
+            offset += Character.charCount(codePoint);
+        }
+        appendRepeated(output, SPACES, spaceCount + startOffset - paddingEnd);
+
+        var caretEnd = Math.min(endOffset, lineLength);
+        var caretCount = 0;
+        while (offset < caretEnd) {
+            var codePoint = Character.codePointAt(line, offset);
+            caretCount += codePoint == '\t' ? 1 : ColumnMode.codePointWidth(codePoint);
+            offset += Character.charCount(codePoint);
+        }
+        caretCount += Math.max(endOffset - Math.max(caretEnd, startOffset), 0);
+        appendRepeated(output, CARETS, Math.max(caretCount, 1));
+    }
+
+    static void appendRepeated(Appendable output, String characters, int count) throws IOException {
+        while (count > 0) {
+            var length = Math.min(count, characters.length());
+            output.append(characters, 0, length);
+            count -= length;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.zwobble.sourcetext;
+
+import java.nio.CharBuffer;
+
+final class CharBufferStorage implements SourceTextStorage {
+    private final CharBuffer charBuffer;
+
+    CharBufferStorage(CharBuffer charBuffer) {
+        this.charBuffer = charBuffer.asReadOnlyBuffer();
+    }
+
+    @Override
+    public int length() {
+        return this.charBuffer.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return this.charBuffer.get(index);
+    }
+
+    @Override
+    public CharSequence charSequence() {
+        // The buffer is duplicated so that callers can't change the position
+        // of the shared buffer.
+        return this.charBuffer.duplicate();
+    }
+
+    @Override
+    public CharSequence charSequence(int startIndex, int endIndex) {
+        return this.charBuffer.subSequence(startIndex, endIndex);
+    }
+
+    @Override
+    public void getChars(int startIndex, int endIndex, char[] destination, int destinationIndex) {
+        this.charBuffer.get(startIndex, destination, destinationIndex, endIndex - startIndex);
+    }
+}
@@ -0,0 +1,154 @@
+package org.zwobble.sourcetext;
+
+/**
+ * How columns are counted within a line.
+ */
+public final class ColumnMode {
+    private static final ColumnMode UTF16_UNITS = new ColumnMode(false, 0, false);
+    private static final ColumnMode CODE_POINTS = new ColumnMode(true, 0, false);
+
+    /**
+     * Count each UTF-16 unit as a column, so the column index of a character
+     * is its offset from the start of the line.
+     */
+    public static ColumnMode utf16Units() {
+        return UTF16_UNITS;
+    }
+
+    /**
+     * Count each code point as a column, so a surrogate pair is a single
+     * column.
+     */
+    public static ColumnMode codePoints() {
+        return CODE_POINTS;
+    }
+
+    /**
+     * Count each code point as a column, except that a tab moves to the next
+     * multiple of the tab width.
+     */
+    public static ColumnMode tabExpanded(int tabWidth) {
+        checkTabWidth(tabWidth);
+        return new ColumnMode(true, tabWidth, false);
+    }
+
+    /**
+     * Count the columns that each code point takes up when displayed in a
+     * terminal: East Asian wide and fullwidth characters take two columns,
+     * combining marks and other zero-width characters take no columns, and a
+     * tab moves to the next multiple of the tab width.
+     */
+    public static ColumnMode displayWidth(int tabWidth) {
+        checkTabWidth(tabWidth);
+        return new ColumnMode(true, tabWidth, true);
+    }
+
+    private static void checkTabWidth(int tabWidth) {
+        if (tabWidth < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Tab width %s not in range",
+                tabWidth
+            ));
+        }
+    }
+
+    /**
+     * The number of columns that a code point takes up when displayed in a
+     * terminal, ignoring tabs.
+     */
+    static int codePointWidth(int codePoint) {
+        if (codePoint < 0x300) {
+            return 1;
+        }
+
+        var type = Character.getType(codePoint);
+        if (
+            type == Character.NON_SPACING_MARK ||
+                type == Character.ENCLOSING_MARK ||
+                type == Character.FORMAT ||
+                codePoint == 0x200b
+        ) {
+            return 0;
+        }
+
+        return isWide(codePoint) ? 2 : 1;
+    }
+
+    private static boolean isWide(int codePoint) {
+        return (codePoint >= 0x1100 && codePoint <= 0x115f) ||
+            (codePoint >= 0x2e80 && codePoint <= 0x303e) ||
+            (codePoint >= 0x3041 && codePoint <= 0x33ff) ||
+            (codePoint >= 0x3400 && codePoint <= 0x4dbf) ||
+            (codePoint >= 0x4e00 && codePoint <= 0x9fff) ||
+            (codePoint >= 0xa000 && codePoint <= 0xa4cf) ||
+            (codePoint >= 0xac00 && codePoint <= 0xd7a3) ||
+            (codePoint >= 0xf900 && codePoint <= 0xfaff) ||
+            (codePoint >= 0xfe30 && codePoint <= 0xfe4f) ||
+            (codePoint >= 0xff00 && codePoint <= 0xff60) ||
+            (codePoint >= 0xffe0 && codePoint <= 0xffe6) ||
+            (codePoint >= 0x1f300 && codePoint <= 0x1f64f) ||
+            (codePoint >= 0x1f900 && codePoint <= 0x1f9ff) ||
+            (codePoint >= 0x20000 && codePoint <= 0x2fffd) ||
+            (codePoint >= 0x30000 && codePoint <= 0x3fffd);
+    }
+
+    private final boolean countsCodePoints;
+    // Zero if tabs are a single column.
+    private final int tabWidth;
+    private final boolean usesDisplayWidth;
+
+    private ColumnMode(boolean countsCodePoints, int tabWidth, boolean usesDisplayWidth) {
+        this.countsCodePoints = countsCodePoints;
+        this.tabWidth = tabWidth;
+        this.usesDisplayWidth = usesDisplayWidth;
+    }
+
+    boolean isUtf16Units() {
+        return !this.countsCodePoints;
+    }
+
+    /**
+     * Whether a character may take up other than a single column.
+     */
+    boolean mayNotBeSingleColumn(char character) {
+        return character == '\t'
+            ? this.tabWidth != 0
+            : character >= (this.usesDisplayWidth ? 0x300 : Character.MIN_SURROGATE);
+    }
+
+    /**
+     * The column index after the code point at the given column index.
+     */
+    int advance(int columnIndex, int codePoint) {
+        if (codePoint == '\t' && this.tabWidth != 0) {
+            return (columnIndex / this.tabWidth + 1) * this.tabWidth;
+        } else if (this.usesDisplayWidth) {
+            return columnIndex + codePointWidth(codePoint);
+        } else {
+            return columnIndex + 1;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof ColumnMode otherColumnMode)) {
+            return false;
+        }
+
+        return this.countsCodePoints == otherColumnMode.countsCodePoints &&
+            this.tabWidth == otherColumnMode.tabWidth &&
+            this.usesDisplayWidth == otherColumnMode.usesDisplayWidth;
+    }
+
+    @Override
+    public int hashCode() {
+        var hashCode = Boolean.hashCode(this.countsCodePoints);
+        hashCode = 31 * hashCode + this.tabWidth;
+        hashCode = 31 * hashCode + Boolean.hashCode(this.usesDisplayWidth);
+        return hashCode;
+    }
+}
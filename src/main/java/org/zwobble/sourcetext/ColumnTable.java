@@ -0,0 +1,86 @@
+package org.zwobble.sourcetext;
+
+/**
+ * The column index of each character index in a line, using a column mode.
+ */
+final class ColumnTable {
+    static ColumnTable build(
+        SourceTextStorage storage,
+        int lineIndex,
+        int lineStart,
+        int lineEnd,
+        ColumnMode columnMode
+    ) {
+        var isSingleColumn = true;
+        for (var index = lineStart; index < lineEnd; index++) {
+            if (columnMode.mayNotBeSingleColumn(storage.charAt(index))) {
+                isSingleColumn = false;
+                break;
+            }
+        }
+        if (isSingleColumn) {
+            return new ColumnTable(lineIndex, columnMode, null);
+        }
+
+        var lineLength = lineEnd - lineStart;
+        var columnIndices = new int[lineLength + 1];
+        var columnIndex = 0;
+        var offset = 0;
+        while (offset < lineLength) {
+            var character = storage.charAt(lineStart + offset);
+            var codePoint = (int) character;
+            if (
+                Character.isHighSurrogate(character) &&
+                    offset + 1 < lineLength &&
+                    Character.isLowSurrogate(storage.charAt(lineStart + offset + 1))
+            ) {
+                codePoint = Character.toCodePoint(character, storage.charAt(lineStart + offset + 1));
+            }
+
+            columnIndices[offset] = columnIndex;
+            columnIndex = columnMode.advance(columnIndex, codePoint);
+            // A character index in the middle of a surrogate pair is treated
+            // as being after the pair.
+            for (var unit = 1; unit < Character.charCount(codePoint); unit++) {
+                columnIndices[offset + unit] = columnIndex;
+            }
+            offset += Character.charCount(codePoint);
+        }
+        columnIndices[lineLength] = columnIndex;
+
+        return new ColumnTable(lineIndex, columnMode, columnIndices);
+    }
+
+    private final int lineIndex;
+    private final ColumnMode columnMode;
+    // Null if each character is a single column.
+    private final int[] columnIndices;
+
+    private ColumnTable(int lineIndex, ColumnMode columnMode, int[] columnIndices) {
+        this.lineIndex = lineIndex;
+        this.columnMode = columnMode;
+        this.columnIndices = columnIndices;
+    }
+
+    boolean isFor(int lineIndex, ColumnMode columnMode) {
+        return this.lineIndex == lineIndex && this.columnMode.equals(columnMode);
+    }
+
+    /**
+     * The column index of the character at the given offset from the start of
+     * the line. The offset may be past the end of the line when the line
+     * terminator is more than one character, such as between the
+     * {@code '\r'} and {@code '\n'} of {@code "\r\n"}, in which case each
+     * character of the line terminator is a single column.
+     */
+    int columnIndex(int offset) {
+        if (this.columnIndices == null) {
+            return offset;
+        }
+
+        var lineLength = this.columnIndices.length - 1;
+        return offset <= lineLength
+            ? this.columnIndices[offset]
+            : this.columnIndices[lineLength] + offset - lineLength;
+    }
+}
@@ -0,0 +1,96 @@
+package org.zwobble.sourcetext;
+
+/**
+ * Builds a source text derived from an original source text by copying ranges
+ * of the original and inserting other text, recording the position mapping at
+ * the same time.
+ */
+public class DerivedSourceTextBuilder {
+    private final SourceText original;
+    private final StringBuilder text;
+    private final SegmentedPositionMapper.Builder positionMapper;
+
+    DerivedSourceTextBuilder(SourceText original) {
+        this.original = original;
+        this.text = new StringBuilder();
+        this.positionMapper = SegmentedPositionMapper.builder();
+    }
+
+    public DerivedSourceTextBuilder copy(SourceRange sourceRange) {
+        if (!sourceRange.sourceText().equals(this.original)) {
+            throw new IllegalArgumentException(
+                "Source range must be in the original source text"
+            );
+        }
+
+        return copy(
+            sourceRange.start().characterIndex(),
+            sourceRange.end().characterIndex()
+        );
+    }
+
+    public DerivedSourceTextBuilder copy(
+        int startCharacterIndex,
+        int endCharacterIndex
+    ) {
+        if (
+            startCharacterIndex < 0 ||
+                endCharacterIndex > this.original.characterLength() ||
+                startCharacterIndex > endCharacterIndex
+        ) {
+            throw new IllegalArgumentException(String.format(
+                "Character range %s to %s not in range",
+                startCharacterIndex,
+                endCharacterIndex
+            ));
+        }
+
+        this.original.storage().appendTo(this.text, startCharacterIndex, endCharacterIndex);
+        this.positionMapper.copied(
+            startCharacterIndex,
+            endCharacterIndex - startCharacterIndex
+        );
+        return this;
+    }
+
+    /**
+     * Insert text that doesn't appear in the original source text. Positions
+     * in the inserted text map to the end of the last copied range.
+     */
+    public DerivedSourceTextBuilder insert(CharSequence text) {
+        this.text.append(text);
+        this.positionMapper.inserted(text.length());
+        return this;
+    }
+
+    /**
+     * Insert text that doesn't appear in the original source text. Positions
+     * in the inserted text map to the given position.
+     */
+    public DerivedSourceTextBuilder insert(
+        CharSequence text,
+        SourcePosition originalPosition
+    ) {
+        if (!originalPosition.sourceText().equals(this.original)) {
+            throw new IllegalArgumentException(
+                "Source position must be in the original source text"
+            );
+        }
+
+        this.text.append(text);
+        this.positionMapper.inserted(text.length(), originalPosition.characterIndex());
+        return this;
+    }
+
+    public int characterLength() {
+        return this.text.length();
+    }
+
+    public SourceText build() {
+        return SourceText.derived(
+            this.original,
+            this.text.toString(),
+            this.positionMapper.build()
+        );
+    }
+}
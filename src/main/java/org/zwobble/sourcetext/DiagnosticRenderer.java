@@ -0,0 +1,191 @@
+package org.zwobble.sourcetext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Renders source ranges in the same format as {@link SourceRange#describe()},
+ * but writing directly to an {@link Appendable}. Ranges that span multiple
+ * lines are underlined on each line, and lines before and after each range can
+ * be included for context.
+ */
+public final class DiagnosticRenderer {
+    public static DiagnosticRenderer create() {
+        return new DiagnosticRenderer(0, ColumnMode.utf16Units());
+    }
+
+    private final int contextLineCount;
+    private final ColumnMode columnMode;
+
+    private DiagnosticRenderer(int contextLineCount, ColumnMode columnMode) {
+        this.contextLineCount = contextLineCount;
+        this.columnMode = columnMode;
+    }
+
+    /**
+     * Create a renderer that includes up to the given number of lines before
+     * and after each range.
+     */
+    public DiagnosticRenderer withContextLines(int contextLineCount) {
+        if (contextLineCount < 0) {
+            throw new IllegalArgumentException(String.format(
+                "Context line count %s not in range",
+                contextLineCount
+            ));
+        }
+
+        return new DiagnosticRenderer(contextLineCount, this.columnMode);
+    }
+
+    /**
+     * Create a renderer that uses the given column mode for column numbers.
+     * Regardless of the column mode, the carets line up with the characters
+     * of each range when displayed.
+     */
+    public DiagnosticRenderer withColumnMode(ColumnMode columnMode) {
+        return new DiagnosticRenderer(this.contextLineCount, columnMode);
+    }
+
+    /**
+     * Render a single range, followed by a newline.
+     */
+    public void render(SourceRange sourceRange, Appendable output) throws IOException {
+        var originalSourceRange = originalSourceRange(sourceRange);
+        var sourceText = originalSourceRange.sourceText();
+        render(
+            sourceText,
+            originalSourceRange.start().characterIndex(),
+            originalSourceRange.end().characterIndex(),
+            output
+        );
+    }
+
+    /**
+     * Render many ranges, each followed by a newline. The ranges are grouped
+     * by source text, in the order that each source text first appears, and
+     * sorted by position within each source text.
+     */
+    public void render(List<SourceRange> sourceRanges, Appendable output) throws IOException {
+        var rangeCount = sourceRanges.size();
+        var sourceTexts = new SourceText[rangeCount];
+        var sourceTextIndices = new HashMap<SourceText, Integer>();
+        var groups = new int[rangeCount];
+        var packedRanges = new long[rangeCount];
+        var groupStarts = new int[rangeCount + 1];
+
+        for (var index = 0; index < rangeCount; index++) {
+            var sourceRange = originalSourceRange(sourceRanges.get(index));
+            var sourceText = sourceRange.sourceText();
+            var group = sourceTextIndices.computeIfAbsent(sourceText, key -> sourceTextIndices.size());
+            sourceTexts[group] = sourceText;
+            groups[index] = group;
+            packedRanges[index] = sourceRange.packed();
+            groupStarts[group + 1]++;
+        }
+
+        // Group the ranges by source text, and then sort each group by start
+        // and end. Since character indices aren't negative, sorting packed
+        // ranges sorts by start and then by end, without boxing.
+        var groupCount = sourceTextIndices.size();
+        for (var group = 0; group < groupCount; group++) {
+            groupStarts[group + 1] += groupStarts[group];
+        }
+        var sortedRanges = new long[rangeCount];
+        var groupEnds = Arrays.copyOf(groupStarts, groupCount);
+        for (var index = 0; index < rangeCount; index++) {
+            sortedRanges[groupEnds[groups[index]]++] = packedRanges[index];
+        }
+
+        for (var group = 0; group < groupCount; group++) {
+            Arrays.sort(sortedRanges, groupStarts[group], groupStarts[group + 1]);
+            for (var index = groupStarts[group]; index < groupStarts[group + 1]; index++) {
+                render(
+                    sourceTexts[group],
+                    SourceRange.packedStartCharacterIndex(sortedRanges[index]),
+                    SourceRange.packedEndCharacterIndex(sortedRanges[index]),
+                    output
+                );
+            }
+        }
+    }
+
+    private void render(
+        SourceText sourceText,
+        int startCharacterIndex,
+        int endCharacterIndex,
+        Appendable output
+    ) throws IOException {
+        startCharacterIndex = sourceText.clampCharacterIndex(startCharacterIndex);
+        endCharacterIndex = Math.max(sourceText.clampCharacterIndex(endCharacterIndex), startCharacterIndex);
+
+        var startLineIndex = sourceText.lineIndex(startCharacterIndex);
+        var endLineIndex = sourceText.lineIndex(endCharacterIndex);
+        // A range that ends at the start of a line doesn't include any of
+        // that line.
+        if (endLineIndex > startLineIndex && sourceText.lineStart(endLineIndex) == endCharacterIndex) {
+            endLineIndex--;
+        }
+
+        output.append(sourceText.name()).append(':');
+        appendNumber(output, startLineIndex + 1);
+        output.append(':');
+        appendNumber(output, sourceText.columnIndex(startCharacterIndex, this.columnMode) + 1);
+        output.append('\n');
+
+        var firstLineIndex = Math.max(startLineIndex - this.contextLineCount, 0);
+        for (var lineIndex = firstLineIndex; lineIndex < startLineIndex; lineIndex++) {
+            appendLine(sourceText, lineIndex, output);
+        }
+
+        for (var lineIndex = startLineIndex; lineIndex <= endLineIndex; lineIndex++) {
+            var lineStart = sourceText.lineStart(lineIndex);
+            var lineEnd = sourceText.lineEnd(lineIndex);
+            var line = sourceText.charSequence(lineStart, lineEnd);
+            output.append(line).append('\n');
+
+            var underlineStart = Math.max(startCharacterIndex, lineStart) - lineStart;
+            var underlineEnd = Math.min(endCharacterIndex, lineEnd) - lineStart;
+            Carets.append(output, line, underlineStart, Math.max(underlineEnd, underlineStart + 1));
+            output.append('\n');
+        }
+
+        var lastLineIndex = endLineIndex + this.contextLineCount;
+        for (var lineIndex = endLineIndex + 1; lineIndex <= lastLineIndex && sourceText.hasLine(lineIndex); lineIndex++) {
+            appendLine(sourceText, lineIndex, output);
+        }
+    }
+
+    /**
+     * Map the range through each derived source text to the original source
+     * text, as {@link SourceRange#describe()} does.
+     */
+    private static SourceRange originalSourceRange(SourceRange sourceRange) {
+        var parentSourceText = sourceRange.sourceText().parentSourceText();
+        while (parentSourceText.isPresent()) {
+            var start = parentSourceText.get().originalPosition(sourceRange.start());
+            var end = parentSourceText.get().originalPosition(sourceRange.end());
+            sourceRange = start.to(end);
+            parentSourceText = sourceRange.sourceText().parentSourceText();
+        }
+        return sourceRange;
+    }
+
+    private static void appendLine(
+        SourceText sourceText,
+        int lineIndex,
+        Appendable output
+    ) throws IOException {
+        output.append(sourceText.charSequence(sourceText.lineStart(lineIndex), sourceText.lineEnd(lineIndex)));
+        output.append('\n');
+    }
+
+    private static void appendNumber(Appendable output, int number) throws IOException {
+        if (output instanceof StringBuilder builder) {
+            builder.append(number);
+        } else {
+            output.append(Integer.toString(number));
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.zwobble.sourcetext;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The character indices at which each line of a source text starts. The first
+ * line always starts at character index 0.
+ */
+final class LineIndex {
+    /**
+     * Texts at least this long are indexed in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+    private static final int MIN_CHUNK_LENGTH = 1 << 16;
+
+    static LineIndex build(SourceTextStorage storage, LineTerminators lineTerminators) {
+        if (storage.length() >= PARALLEL_THRESHOLD) {
+            return buildParallel(storage, lineTerminators);
+        } else if (lineTerminators == LineTerminators.LF) {
+            return buildSequential(storage);
+        } else {
+            return buildSequential(storage, lineTerminators);
+        }
+    }
+
+    private static LineIndex buildSequential(SourceTextStorage storage) {
+        var lineStarts = new int[16];
+        var lineCount = 1;
+
+        var characterIndex = storage.indexOf('\n', 0);
+        while (characterIndex != -1) {
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+            }
+            lineStarts[lineCount++] = characterIndex + 1;
+            characterIndex = storage.indexOf('\n', characterIndex + 1);
+        }
+
+        return new LineIndex(Arrays.copyOf(lineStarts, lineCount));
+    }
+
+    private static LineIndex buildSequential(SourceTextStorage storage, LineTerminators lineTerminators) {
+        var lineStarts = new int[16];
+        var lineCount = 1;
+
+        var characterLength = storage.length();
+        for (var characterIndex = 0; characterIndex < characterLength; characterIndex++) {
+            if (lineTerminators.endsLine(storage, characterIndex, characterLength)) {
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                }
+                lineStarts[lineCount++] = characterIndex + 1;
+            }
+        }
+
+        return new LineIndex(Arrays.copyOf(lineStarts, lineCount));
+    }
+
+    /**
+     * Split the text into chunks, count the line terminators in each chunk in
+     * parallel, and then use the running totals of those counts to fill in
+     * the line starts of each chunk in parallel.
+     */
+    private static LineIndex buildParallel(SourceTextStorage storage, LineTerminators lineTerminators) {
+        var characterLength = storage.length();
+        var chunkLength = Math.max(
+            MIN_CHUNK_LENGTH,
+            characterLength / (ForkJoinPool.getCommonPoolParallelism() * 4)
+        );
+        var chunkCount = characterLength / chunkLength + (characterLength % chunkLength == 0 ? 0 : 1);
+
+        var chunkLineCounts = new int[chunkCount];
+        IntStream.range(0, chunkCount).parallel().forEach(chunkIndex -> {
+            var start = chunkIndex * chunkLength;
+            var end = start + Math.min(chunkLength, characterLength - start);
+            var lineCount = 0;
+            for (var characterIndex = start; characterIndex < end; characterIndex++) {
+                if (lineTerminators.endsLine(storage, characterIndex, characterLength)) {
+                    lineCount++;
+                }
+            }
+            chunkLineCounts[chunkIndex] = lineCount;
+        });
+
+        // Line 0 always starts at 0, so the line starts of each chunk are
+        // offset by one.
+        var chunkLineOffsets = new int[chunkCount + 1];
+        chunkLineOffsets[0] = 1;
+        for (var chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+            chunkLineOffsets[chunkIndex + 1] = chunkLineOffsets[chunkIndex] + chunkLineCounts[chunkIndex];
+        }
+
+        var lineStarts = new int[chunkLineOffsets[chunkCount]];
+        IntStream.range(0, chunkCount).parallel().forEach(chunkIndex -> {
+            var start = chunkIndex * chunkLength;
+            var end = start + Math.min(chunkLength, characterLength - start);
+            var lineIndex = chunkLineOffsets[chunkIndex];
+            for (var characterIndex = start; characterIndex < end; characterIndex++) {
+                if (lineTerminators.endsLine(storage, characterIndex, characterLength)) {
+                    lineStarts[lineIndex++] = characterIndex + 1;
+                }
+            }
+        });
+
+        return new LineIndex(lineStarts);
+    }
+
+    /**
+     * Update a line index after replacing the characters from start to end
+     * with the replacement, without rescanning the unchanged characters.
+     * <p>
+     * Whether a line starts at an index only depends on the characters
+     * immediately before and at that index, so only line starts from the start
+     * of the edit to the end of the replacement, inclusive, need to be found
+     * again.
+     */
+    static LineIndex edited(
+        LineIndex lineIndex,
+        int startIndex,
+        int endIndex,
+        CharSequence replacement,
+        SourceTextStorage newStorage,
+        LineTerminators lineTerminators
+    ) {
+        var delta = replacement.length() - (endIndex - startIndex);
+        var oldLineStarts = lineIndex.lineStarts;
+        var oldLineCount = lineIndex.lineCount;
+
+        // Lines that start before the start of the edit are unchanged.
+        var keptBeforeCount = startIndex == 0 ? 1 : lineIndex.lineIndex(startIndex - 1) + 1;
+        // Lines that start after the end of the edit are shifted.
+        var keptAfterStart = lineIndex.lineIndex(endIndex) + 1;
+
+        var newLength = newStorage.length();
+        var scanStart = Math.max(startIndex - 1, 0);
+        var scanEnd = Math.min(startIndex + replacement.length(), newLength);
+        var insertedCount = 0;
+        for (var index = scanStart; index < scanEnd; index++) {
+            if (lineTerminators.endsLine(newStorage, index, newLength)) {
+                insertedCount++;
+            }
+        }
+
+        var lineStarts = new int[keptBeforeCount + insertedCount + oldLineCount - keptAfterStart];
+        System.arraycopy(oldLineStarts, 0, lineStarts, 0, keptBeforeCount);
+        var lineCount = keptBeforeCount;
+        for (var index = scanStart; index < scanEnd; index++) {
+            if (lineTerminators.endsLine(newStorage, index, newLength)) {
+                lineStarts[lineCount++] = index + 1;
+            }
+        }
+        for (var index = keptAfterStart; index < oldLineCount; index++) {
+            lineStarts[lineCount++] = oldLineStarts[index] + delta;
+        }
+
+        return new LineIndex(lineStarts);
+    }
+
+    /**
+     * Create a line index for a text that is read incrementally. Initially,
+     * the line index only has the first line, and further lines are added as
+     * their line terminators are read.
+     */
+    static LineIndex incremental() {
+        return new LineIndex(new int[16], 1);
+    }
+
+    private int[] lineStarts;
+    private int lineCount;
+
+    private LineIndex(int[] lineStarts) {
+        this(lineStarts, lineStarts.length);
+    }
+
+    private LineIndex(int[] lineStarts, int lineCount) {
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * Add the start of a line to an incremental line index. Line starts must
+     * be added in ascending order.
+     */
+    void addLineStart(int lineStart) {
+        if (this.lineCount == this.lineStarts.length) {
+            this.lineStarts = Arrays.copyOf(this.lineStarts, this.lineStarts.length * 2);
+        }
+        this.lineStarts[this.lineCount++] = lineStart;
+    }
+
+    int lineCount() {
+        return this.lineCount;
+    }
+
+    int lineIndex(int characterIndex) {
+        var low = 0;
+        var high = this.lineCount - 1;
+
+        while (low < high) {
+            var middle = (low + high + 1) >>> 1;
+            if (this.lineStarts[middle] <= characterIndex) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    int lineStart(int lineIndex) {
+        return this.lineStarts[lineIndex];
+    }
+}
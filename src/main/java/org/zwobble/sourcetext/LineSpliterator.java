@@ -0,0 +1,53 @@
+package org.zwobble.sourcetext;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splits the lines of a source text by line index, so the lines of large
+ * texts can be processed in parallel.
+ */
+final class LineSpliterator implements Spliterator<SourceRange> {
+    private final SourceText sourceText;
+    private int lineIndex;
+    private final int endLineIndex;
+
+    LineSpliterator(SourceText sourceText, int lineIndex, int endLineIndex) {
+        this.sourceText = sourceText;
+        this.lineIndex = lineIndex;
+        this.endLineIndex = endLineIndex;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super SourceRange> action) {
+        if (this.lineIndex >= this.endLineIndex) {
+            return false;
+        }
+
+        action.accept(this.sourceText.lineSourceRange(this.lineIndex));
+        this.lineIndex++;
+        return true;
+    }
+
+    @Override
+    public Spliterator<SourceRange> trySplit() {
+        var middle = (this.lineIndex + this.endLineIndex) >>> 1;
+        if (middle <= this.lineIndex) {
+            return null;
+        }
+
+        var prefix = new LineSpliterator(this.sourceText, this.lineIndex, middle);
+        this.lineIndex = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.endLineIndex - this.lineIndex;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
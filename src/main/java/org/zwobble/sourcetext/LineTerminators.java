@@ -0,0 +1,66 @@
+package org.zwobble.sourcetext;
+
+/**
+ * The sequences of characters that end lines.
+ */
+public enum LineTerminators {
+    /**
+     * Only {@code "\n"} ends a line. Any {@code '\r'} before a {@code '\n'} is
+     * treated as part of the line.
+     */
+    LF,
+
+    /**
+     * {@code "\n"}, {@code "\r\n"} and {@code "\r"} each end a line.
+     */
+    UNIVERSAL,
+
+    /**
+     * As {@link #UNIVERSAL}, but vertical tab, form feed, next line (U+0085),
+     * line separator (U+2028) and paragraph separator (U+2029) also each end a
+     * line, the same as {@code \R} in regular expressions.
+     */
+    UNICODE;
+
+    /**
+     * Whether the character ends a line, or begins a line terminator that
+     * ends a line.
+     */
+    boolean isTerminatorCharacter(char character) {
+        return switch (this) {
+            case LF -> character == '\n';
+            case UNIVERSAL -> character == '\n' || character == '\r';
+            case UNICODE -> (character >= '\n' && character <= '\r') ||
+                character == '\u0085' ||
+                character == '\u2028' ||
+                character == '\u2029';
+        };
+    }
+
+    /**
+     * Whether a line starts after the character at the given index. A
+     * {@code '\r'} that is followed by a {@code '\n'} doesn't end a line by
+     * itself, since the line ends after the {@code '\n'}.
+     */
+    boolean endsLine(SourceTextStorage storage, int index, int length) {
+        var character = storage.charAt(index);
+        if (!isTerminatorCharacter(character)) {
+            return false;
+        }
+
+        return character != '\r' || index + 1 == length || storage.charAt(index + 1) != '\n';
+    }
+
+    /**
+     * The length of the line terminator that ends just before the given line
+     * start.
+     */
+    int terminatorLength(SourceTextStorage storage, int lineStart) {
+        return this != LF &&
+            lineStart >= 2 &&
+            storage.charAt(lineStart - 1) == '\n' &&
+            storage.charAt(lineStart - 2) == '\r'
+            ? 2
+            : 1;
+    }
+}
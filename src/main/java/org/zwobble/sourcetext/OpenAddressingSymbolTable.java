@@ -0,0 +1,144 @@
+package org.zwobble.sourcetext;
+
+import java.util.Arrays;
+
+/**
+ * A symbol table using open addressing with linear probing. The table holds
+ * one more than the ID of each symbol, with zero marking empty slots, while
+ * the hash and string of each symbol are held in arrays indexed by ID.
+ */
+final class OpenAddressingSymbolTable implements SymbolTable {
+    /**
+     * Spread the bits of a string hash code, since similar symbols tend to
+     * have similar hash codes.
+     */
+    static int mix(int hashCode) {
+        var mixed = hashCode * 0x9e3779b9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    /**
+     * The same hash code as a string with the same characters.
+     */
+    static int hashCode(CharSequence sequence) {
+        if (sequence instanceof String string) {
+            return string.hashCode();
+        }
+
+        var hashCode = 0;
+        for (var index = 0; index < sequence.length(); index++) {
+            hashCode = 31 * hashCode + sequence.charAt(index);
+        }
+        return hashCode;
+    }
+
+    private int[] table = new int[64];
+    private int[] hashCodes = new int[32];
+    private String[] symbols = new String[32];
+    private int size = 0;
+
+    @Override
+    public int intern(SourceRange sourceRange) {
+        var storage = sourceRange.sourceText().storage();
+        var startIndex = sourceRange.start().characterIndex();
+        var endIndex = sourceRange.end().characterIndex();
+        return intern(storage.contentHashCode(startIndex, endIndex), storage, startIndex, endIndex);
+    }
+
+    @Override
+    public int intern(CharSequence symbol) {
+        return intern(hashCode(symbol), symbol);
+    }
+
+    int intern(int hashCode, SourceTextStorage storage, int startIndex, int endIndex) {
+        var length = endIndex - startIndex;
+        var mask = this.table.length - 1;
+        var slot = mix(hashCode) & mask;
+        while (true) {
+            var entry = this.table[slot];
+            if (entry == 0) {
+                var characters = new char[length];
+                storage.getChars(startIndex, endIndex, characters, 0);
+                return add(slot, hashCode, new String(characters));
+            }
+
+            var symbolId = entry - 1;
+            if (
+                this.hashCodes[symbolId] == hashCode &&
+                    this.symbols[symbolId].length() == length &&
+                    storage.regionMatches(startIndex, this.symbols[symbolId])
+            ) {
+                return symbolId;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    int intern(int hashCode, CharSequence symbol) {
+        var mask = this.table.length - 1;
+        var slot = mix(hashCode) & mask;
+        while (true) {
+            var entry = this.table[slot];
+            if (entry == 0) {
+                return add(slot, hashCode, symbol.toString());
+            }
+
+            var symbolId = entry - 1;
+            if (this.hashCodes[symbolId] == hashCode && this.symbols[symbolId].contentEquals(symbol)) {
+                return symbolId;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    public String symbol(int symbolId) {
+        if (symbolId < 0 || symbolId >= this.size) {
+            throw new IllegalArgumentException(String.format(
+                "Symbol ID %s not in range",
+                symbolId
+            ));
+        }
+
+        return this.symbols[symbolId];
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    private int add(int slot, int hashCode, String symbol) {
+        var symbolId = this.size;
+        if (symbolId == this.symbols.length) {
+            this.hashCodes = Arrays.copyOf(this.hashCodes, symbolId * 2);
+            this.symbols = Arrays.copyOf(this.symbols, symbolId * 2);
+        }
+        this.hashCodes[symbolId] = hashCode;
+        this.symbols[symbolId] = symbol;
+        this.table[slot] = symbolId + 1;
+        this.size++;
+
+        // Keep the table at most half full.
+        if (this.size * 2 > this.table.length) {
+            resize();
+        }
+
+        return symbolId;
+    }
+
+    private void resize() {
+        var table = new int[this.table.length * 2];
+        var mask = table.length - 1;
+        for (var symbolId = 0; symbolId < this.size; symbolId++) {
+            var slot = mix(this.hashCodes[symbolId]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = symbolId + 1;
+        }
+        this.table = table;
+    }
+}
@@ -0,0 +1,211 @@
+package org.zwobble.sourcetext;
+
+import java.util.Arrays;
+
+/**
+ * Storage made up of pieces of other storage, allowing an edited text to
+ * share the unchanged characters of the text it was edited from.
+ */
+final class PieceTableStorage implements SourceTextStorage {
+    /**
+     * Once there are more pieces than this, the characters are copied into a
+     * single piece so that looking up characters stays cheap.
+     */
+    private static final int MAX_PIECE_COUNT = 1024;
+
+    static SourceTextStorage replace(
+        SourceTextStorage storage,
+        int startIndex,
+        int endIndex,
+        String replacement
+    ) {
+        var table = storage instanceof PieceTableStorage pieceTable
+            ? pieceTable
+            : new PieceTableStorage(
+                new SourceTextStorage[] {storage},
+                new int[] {0},
+                new int[] {0, storage.length()}
+            );
+
+        var builder = new Builder(table.pieceCount() + 3);
+        table.copyPieces(builder, 0, startIndex);
+        builder.add(new StringStorage(replacement), 0, replacement.length());
+        table.copyPieces(builder, endIndex, table.length());
+
+        if (builder.pieceCount > MAX_PIECE_COUNT) {
+            var characters = new StringBuilder(builder.length);
+            for (var index = 0; index < builder.pieceCount; index++) {
+                builder.sources[index].appendTo(
+                    characters,
+                    builder.sourceStarts[index],
+                    builder.sourceStarts[index] + builder.pieceStarts[index + 1] - builder.pieceStarts[index]
+                );
+            }
+            return new StringStorage(characters.toString());
+        }
+
+        return builder.build();
+    }
+
+    private final SourceTextStorage[] sources;
+    private final int[] sourceStarts;
+    // Has one more element than the number of pieces, the last being the
+    // total length.
+    private final int[] pieceStarts;
+
+    private PieceTableStorage(
+        SourceTextStorage[] sources,
+        int[] sourceStarts,
+        int[] pieceStarts
+    ) {
+        this.sources = sources;
+        this.sourceStarts = sourceStarts;
+        this.pieceStarts = pieceStarts;
+    }
+
+    int pieceCount() {
+        return this.sources.length;
+    }
+
+    @Override
+    public int length() {
+        return this.pieceStarts[this.sources.length];
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        var pieceIndex = pieceIndex(index);
+        return this.sources[pieceIndex].charAt(
+            this.sourceStarts[pieceIndex] + index - this.pieceStarts[pieceIndex]
+        );
+    }
+
+    @Override
+    public CharSequence charSequence() {
+        return StorageCharSequence.of(this, 0, length());
+    }
+
+    @Override
+    public CharSequence charSequence(int startIndex, int endIndex) {
+        return StorageCharSequence.of(this, startIndex, endIndex);
+    }
+
+    @Override
+    public void appendTo(StringBuilder builder, int startIndex, int endIndex) {
+        if (startIndex >= endIndex) {
+            return;
+        }
+
+        for (var pieceIndex = pieceIndex(startIndex); this.pieceStarts[pieceIndex] < endIndex; pieceIndex++) {
+            var pieceStart = this.pieceStarts[pieceIndex];
+            var from = Math.max(startIndex, pieceStart) - pieceStart + this.sourceStarts[pieceIndex];
+            var to = Math.min(endIndex, this.pieceStarts[pieceIndex + 1]) - pieceStart + this.sourceStarts[pieceIndex];
+            this.sources[pieceIndex].appendTo(builder, from, to);
+        }
+    }
+
+    @Override
+    public boolean containsSurrogates() {
+        for (var pieceIndex = 0; pieceIndex < this.sources.length; pieceIndex++) {
+            var start = this.sourceStarts[pieceIndex];
+            var end = start + this.pieceStarts[pieceIndex + 1] - this.pieceStarts[pieceIndex];
+            var source = this.sources[pieceIndex];
+            for (var index = start; index < end; index++) {
+                if (Character.isSurrogate(source.charAt(index))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void copyPieces(Builder builder, int startIndex, int endIndex) {
+        if (startIndex >= endIndex) {
+            return;
+        }
+
+        for (var pieceIndex = pieceIndex(startIndex); this.pieceStarts[pieceIndex] < endIndex; pieceIndex++) {
+            var pieceStart = this.pieceStarts[pieceIndex];
+            var from = Math.max(startIndex, pieceStart);
+            var to = Math.min(endIndex, this.pieceStarts[pieceIndex + 1]);
+            builder.add(
+                this.sources[pieceIndex],
+                this.sourceStarts[pieceIndex] + from - pieceStart,
+                to - from
+            );
+        }
+    }
+
+    private int pieceIndex(int index) {
+        var low = 0;
+        var high = this.sources.length - 1;
+
+        while (low < high) {
+            var middle = (low + high + 1) >>> 1;
+            if (this.pieceStarts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private static class Builder {
+        private SourceTextStorage[] sources;
+        private int[] sourceStarts;
+        private int[] pieceStarts;
+        private int pieceCount = 0;
+        private int length = 0;
+
+        Builder(int capacity) {
+            this.sources = new SourceTextStorage[capacity];
+            this.sourceStarts = new int[capacity];
+            this.pieceStarts = new int[capacity + 1];
+        }
+
+        void add(SourceTextStorage source, int sourceStart, int length) {
+            if (length == 0) {
+                return;
+            }
+
+            var last = this.pieceCount - 1;
+            if (
+                last >= 0 &&
+                    this.sources[last] == source &&
+                    this.sourceStarts[last] + this.length - this.pieceStarts[last] == sourceStart
+            ) {
+                this.length += length;
+                this.pieceStarts[this.pieceCount] = this.length;
+                return;
+            }
+
+            if (this.pieceCount == this.sources.length) {
+                var capacity = this.pieceCount * 2;
+                this.sources = Arrays.copyOf(this.sources, capacity);
+                this.sourceStarts = Arrays.copyOf(this.sourceStarts, capacity);
+                this.pieceStarts = Arrays.copyOf(this.pieceStarts, capacity + 1);
+            }
+
+            this.sources[this.pieceCount] = source;
+            this.sourceStarts[this.pieceCount] = sourceStart;
+            this.pieceStarts[this.pieceCount] = this.length;
+            this.pieceCount++;
+            this.length += length;
+            this.pieceStarts[this.pieceCount] = this.length;
+        }
+
+        PieceTableStorage build() {
+            return new PieceTableStorage(
+                Arrays.copyOf(this.sources, this.pieceCount),
+                Arrays.copyOf(this.sourceStarts, this.pieceCount),
+                Arrays.copyOf(this.pieceStarts, this.pieceCount + 1)
+            );
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.zwobble.sourcetext;
+
+import java.util.Arrays;
+
+/**
+ * A position mapper made up of segments of the derived text, sorted by their
+ * start in the derived text. Each segment is either copied from the original
+ * text, so positions within it map to the corresponding positions in the
+ * original, or inserted, so every position within it maps to a single point
+ * in the original.
+ * <p>
+ * When a source text is derived using a segmented position mapper from a
+ * source text that was itself derived using a segmented position mapper, the
+ * two mappers are composed into a single mapper, so mapping a position to the
+ * original source text takes a single binary search regardless of how many
+ * times the text has been derived.
+ */
+public final class SegmentedPositionMapper implements SourceText.PositionMapper {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final int[] derivedStarts;
+    private final int[] originalStarts;
+    private final int[] originalLengths;
+
+    private SegmentedPositionMapper(
+        int[] derivedStarts,
+        int[] originalStarts,
+        int[] originalLengths
+    ) {
+        this.derivedStarts = derivedStarts;
+        this.originalStarts = originalStarts;
+        this.originalLengths = originalLengths;
+    }
+
+    @Override
+    public int derivedCharacterIndexToOriginalCharacterIndex(int derivedCharacterIndex) {
+        if (this.derivedStarts.length == 0) {
+            return 0;
+        }
+
+        var segmentIndex = segmentIndex(derivedCharacterIndex);
+        var offset = derivedCharacterIndex - this.derivedStarts[segmentIndex];
+        return this.originalStarts[segmentIndex] +
+            Math.min(Math.max(offset, 0), this.originalLengths[segmentIndex]);
+    }
+
+    int segmentCount() {
+        return this.derivedStarts.length;
+    }
+
+    /**
+     * Compose this mapper with a mapper into the text that this mapper maps
+     * from, giving a single mapper that maps directly into the text that this
+     * mapper maps to.
+     */
+    SegmentedPositionMapper compose(SegmentedPositionMapper derivedMapper) {
+        var segments = new Segments();
+
+        if (derivedMapper.derivedStarts.length == 0) {
+            segments.add(0, derivedCharacterIndexToOriginalCharacterIndex(0), 0);
+        }
+
+        for (var index = 0; index < derivedMapper.derivedStarts.length; index++) {
+            var derivedStart = derivedMapper.derivedStarts[index];
+            var intermediateStart = derivedMapper.originalStarts[index];
+            var intermediateEnd = intermediateStart + derivedMapper.originalLengths[index];
+
+            if (intermediateStart == intermediateEnd || this.derivedStarts.length == 0) {
+                segments.add(
+                    derivedStart,
+                    derivedCharacterIndexToOriginalCharacterIndex(intermediateStart),
+                    0
+                );
+                continue;
+            }
+
+            var segmentIndex = segmentIndex(intermediateStart);
+            var intermediateIndex = intermediateStart;
+            while (intermediateIndex < intermediateEnd) {
+                var segmentEnd = segmentIndex + 1 < this.derivedStarts.length
+                    ? this.derivedStarts[segmentIndex + 1]
+                    : Integer.MAX_VALUE;
+
+                if (segmentEnd > intermediateIndex) {
+                    var pieceEnd = Math.min(intermediateEnd, segmentEnd);
+                    var segmentStart = this.derivedStarts[segmentIndex];
+                    var originalLength = this.originalLengths[segmentIndex];
+                    var startOffset = Math.min(intermediateIndex - segmentStart, originalLength);
+                    var endOffset = Math.min(pieceEnd - segmentStart, originalLength);
+                    segments.add(
+                        derivedStart + (intermediateIndex - intermediateStart),
+                        this.originalStarts[segmentIndex] + startOffset,
+                        endOffset - startOffset
+                    );
+                    intermediateIndex = pieceEnd;
+                }
+
+                segmentIndex++;
+            }
+
+            // The end of the segment may map to a different point than the
+            // end of the last piece, for instance if the original text was
+            // skipped at that point. If another segment follows, this point
+            // is replaced by the start of that segment.
+            segments.add(
+                derivedStart + (intermediateEnd - intermediateStart),
+                derivedCharacterIndexToOriginalCharacterIndex(intermediateEnd),
+                0
+            );
+        }
+
+        return segments.build();
+    }
+
+    private int segmentIndex(int derivedCharacterIndex) {
+        var low = 0;
+        var high = this.derivedStarts.length - 1;
+
+        while (low < high) {
+            var middle = (low + high + 1) >>> 1;
+            if (this.derivedStarts[middle] <= derivedCharacterIndex) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    public static class Builder {
+        private final Segments segments = new Segments();
+        private int derivedLength = 0;
+        private int originalCharacterIndex = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Add a segment of the given length copied from the original text.
+         */
+        public Builder copied(int originalStartCharacterIndex, int length) {
+            this.segments.add(this.derivedLength, originalStartCharacterIndex, length);
+            this.derivedLength += length;
+            this.originalCharacterIndex = originalStartCharacterIndex + length;
+            return this;
+        }
+
+        /**
+         * Add a segment of the given length that doesn't appear in the
+         * original text, mapping to the end of the last copied segment.
+         */
+        public Builder inserted(int length) {
+            return inserted(length, this.originalCharacterIndex);
+        }
+
+        /**
+         * Add a segment of the given length that doesn't appear in the
+         * original text, mapping to the given character index.
+         */
+        public Builder inserted(int length, int originalCharacterIndex) {
+            this.segments.add(this.derivedLength, originalCharacterIndex, 0);
+            this.derivedLength += length;
+            this.originalCharacterIndex = originalCharacterIndex;
+            return this;
+        }
+
+        public SegmentedPositionMapper build() {
+            return this.segments.build();
+        }
+    }
+
+    private static class Segments {
+        private int[] derivedStarts = new int[8];
+        private int[] originalStarts = new int[8];
+        private int[] originalLengths = new int[8];
+        private int segmentCount = 0;
+
+        void add(int derivedStart, int originalStart, int originalLength) {
+            var last = this.segmentCount - 1;
+            if (last >= 0) {
+                var lastDerivedLength = derivedStart - this.derivedStarts[last];
+                if (lastDerivedLength == 0) {
+                    // The last segment would never be used.
+                    this.segmentCount--;
+                    add(derivedStart, originalStart, originalLength);
+                    return;
+                }
+
+                var lastOriginalEnd = this.originalStarts[last] + this.originalLengths[last];
+                if (lastDerivedLength == this.originalLengths[last] && lastOriginalEnd == originalStart) {
+                    // The segment continues on from the last segment.
+                    this.originalLengths[last] += originalLength;
+                    return;
+                }
+            }
+
+            if (this.segmentCount == this.derivedStarts.length) {
+                var capacity = this.segmentCount * 2;
+                this.derivedStarts = Arrays.copyOf(this.derivedStarts, capacity);
+                this.originalStarts = Arrays.copyOf(this.originalStarts, capacity);
+                this.originalLengths = Arrays.copyOf(this.originalLengths, capacity);
+            }
+
+            this.derivedStarts[this.segmentCount] = derivedStart;
+            this.originalStarts[this.segmentCount] = originalStart;
+            this.originalLengths[this.segmentCount] = originalLength;
+            this.segmentCount++;
+        }
+
+        SegmentedPositionMapper build() {
+            return new SegmentedPositionMapper(
+                Arrays.copyOf(this.derivedStarts, this.segmentCount),
+                Arrays.copyOf(this.originalStarts, this.segmentCount),
+                Arrays.copyOf(this.originalLengths, this.segmentCount)
+            );
+        }
+    }
+}
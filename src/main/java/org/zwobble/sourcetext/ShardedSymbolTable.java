@@ -0,0 +1,113 @@
+package org.zwobble.sourcetext;
+
+import java.util.Arrays;
+
+/**
+ * A symbol table that can be used from multiple threads by splitting symbols
+ * between shards by their hash codes, with each shard having its own lock.
+ * Looking up a symbol that has already been interned only locks its shard.
+ * Adding a new symbol also briefly locks the whole table to give the symbol
+ * the next symbol ID, so that symbol IDs are dense, as with other symbol
+ * tables.
+ */
+final class ShardedSymbolTable implements SymbolTable {
+    private static final int SHARD_BITS = 4;
+    private static final int SHARD_COUNT = 1 << SHARD_BITS;
+
+    private final OpenAddressingSymbolTable[] shards;
+    // The symbol ID of each symbol in each shard, indexed by its ID within
+    // the shard, guarded by the lock on the shard.
+    private final int[][] shardSymbolIds;
+    // Guarded by the lock on this table.
+    private String[] symbols = new String[64];
+    private int size = 0;
+
+    ShardedSymbolTable() {
+        this.shards = new OpenAddressingSymbolTable[SHARD_COUNT];
+        this.shardSymbolIds = new int[SHARD_COUNT][];
+        for (var shardIndex = 0; shardIndex < SHARD_COUNT; shardIndex++) {
+            this.shards[shardIndex] = new OpenAddressingSymbolTable();
+            this.shardSymbolIds[shardIndex] = new int[16];
+        }
+    }
+
+    @Override
+    public int intern(SourceRange sourceRange) {
+        var storage = sourceRange.sourceText().storage();
+        var startIndex = sourceRange.start().characterIndex();
+        var endIndex = sourceRange.end().characterIndex();
+        var hashCode = storage.contentHashCode(startIndex, endIndex);
+        var shardIndex = shardIndex(hashCode);
+        var shard = this.shards[shardIndex];
+        synchronized (shard) {
+            var shardSize = shard.size();
+            var shardSymbolId = shard.intern(hashCode, storage, startIndex, endIndex);
+            return symbolId(shardIndex, shardSymbolId, shardSize);
+        }
+    }
+
+    @Override
+    public int intern(CharSequence symbol) {
+        var hashCode = OpenAddressingSymbolTable.hashCode(symbol);
+        var shardIndex = shardIndex(hashCode);
+        var shard = this.shards[shardIndex];
+        synchronized (shard) {
+            var shardSize = shard.size();
+            var shardSymbolId = shard.intern(hashCode, symbol);
+            return symbolId(shardIndex, shardSymbolId, shardSize);
+        }
+    }
+
+    @Override
+    public synchronized String symbol(int symbolId) {
+        if (symbolId < 0 || symbolId >= this.size) {
+            throw new IllegalArgumentException(String.format(
+                "Symbol ID %s not in range",
+                symbolId
+            ));
+        }
+
+        return this.symbols[symbolId];
+    }
+
+    @Override
+    public synchronized int size() {
+        return this.size;
+    }
+
+    private static int shardIndex(int hashCode) {
+        // The table within each shard uses the low bits of the mixed hash
+        // code, so use the high bits to choose the shard.
+        return OpenAddressingSymbolTable.mix(hashCode) >>> (Integer.SIZE - SHARD_BITS);
+    }
+
+    /**
+     * Get the symbol ID of a symbol from its ID within its shard, giving it
+     * the next symbol ID if it was just added to the shard. Must be called
+     * while holding the lock on the shard.
+     */
+    private int symbolId(int shardIndex, int shardSymbolId, int shardSize) {
+        var shardSymbolIds = this.shardSymbolIds[shardIndex];
+        if (shardSymbolId < shardSize) {
+            return shardSymbolIds[shardSymbolId];
+        }
+
+        if (shardSymbolId == shardSymbolIds.length) {
+            shardSymbolIds = Arrays.copyOf(shardSymbolIds, shardSymbolIds.length * 2);
+            this.shardSymbolIds[shardIndex] = shardSymbolIds;
+        }
+        var symbolId = add(this.shards[shardIndex].symbol(shardSymbolId));
+        shardSymbolIds[shardSymbolId] = symbolId;
+        return symbolId;
+    }
+
+    private synchronized int add(String symbol) {
+        var symbolId = this.size;
+        if (symbolId == this.symbols.length) {
+            this.symbols = Arrays.copyOf(this.symbols, symbolId * 2);
+        }
+        this.symbols[symbolId] = symbol;
+        this.size++;
+        return symbolId;
+    }
+}
@@ -1,28 +1,85 @@
 package org.zwobble.sourcetext;
 
+import java.util.function.IntPredicate;
+
+/**
+ * An iterator over the characters of a source text. Each iterator must only
+ * be used by a single thread at a time, but any number of iterators can be
+ * used over the same source text at once.
+ */
 public class SourceCharacterIterator {
     private final SourceText sourceText;
+    private final SourceTextStorage storage;
+    // The number of characters known to be loaded, which is the length of
+    // the source text unless the source text is read as it's needed.
+    private int loadedLength;
+    private final boolean containsSurrogates;
     private int characterIndex;
 
     SourceCharacterIterator(SourceText sourceText) {
         this.sourceText = sourceText;
+        this.storage = sourceText.storage();
+        this.loadedLength = this.storage.load(0);
+        this.containsSurrogates = sourceText.containsSurrogates();
         this.characterIndex = 0;
     }
 
+    private SourceCharacterIterator(SourceCharacterIterator iterator) {
+        this.sourceText = iterator.sourceText;
+        this.storage = iterator.storage;
+        this.loadedLength = iterator.loadedLength;
+        this.containsSurrogates = iterator.containsSurrogates;
+        this.characterIndex = iterator.characterIndex;
+    }
+
+    /**
+     * Create an independent iterator at the same position as this iterator.
+     * Moving either iterator doesn't move the other, so the new iterator can
+     * be used to look ahead speculatively, or by another thread.
+     */
+    public SourceCharacterIterator fork() {
+        return new SourceCharacterIterator(this);
+    }
+
     public boolean isEnd() {
-        return this.characterIndex >= this.sourceText.characterLength();
+        return !isLoaded(this.characterIndex + 1);
     }
 
     public int remaining() {
-        return this.sourceText.characterLength() - this.characterIndex;
+        return this.storage.length() - this.characterIndex;
     }
 
     public int peek() {
-        if (this.characterIndex >= this.sourceText.characterLength()) {
+        if (!isLoaded(this.characterIndex + 1)) {
+            return -1;
+        }
+
+        return this.storage.charAt(this.characterIndex);
+    }
+
+    /**
+     * Get the code point at the current position, combining surrogate pairs,
+     * or -1 at the end of the source text. Unpaired surrogates are returned
+     * as-is.
+     */
+    public int peekCodePoint() {
+        if (!isLoaded(this.characterIndex + 1)) {
             return -1;
         }
 
-        return this.sourceText.getCharacter(this.characterIndex);
+        var character = this.storage.charAt(this.characterIndex);
+        if (
+            !this.containsSurrogates ||
+                !Character.isHighSurrogate(character) ||
+                !isLoaded(this.characterIndex + 2)
+        ) {
+            return character;
+        }
+
+        var nextCharacter = this.storage.charAt(this.characterIndex + 1);
+        return Character.isLowSurrogate(nextCharacter)
+            ? Character.toCodePoint(character, nextCharacter)
+            : character;
     }
 
     public CharSequence peekSequence(int length) {
@@ -32,25 +89,148 @@ public class SourceCharacterIterator {
         );
     }
 
+    /**
+     * Check whether the characters at the current position match the given
+     * sequence, without allocating.
+     */
+    public boolean matches(CharSequence sequence) {
+        return isLoaded(this.characterIndex + sequence.length()) &&
+            this.storage.regionMatches(this.characterIndex, sequence);
+    }
+
+    /**
+     * Find the character index of the next occurrence of the given sequence,
+     * starting from the current position, or -1 if there is no occurrence.
+     */
+    public int indexOf(CharSequence sequence) {
+        return this.storage.indexOf(sequence, this.characterIndex);
+    }
+
     public void skip() {
-        if (this.characterIndex < this.sourceText.characterLength()) {
+        if (isLoaded(this.characterIndex + 1)) {
             this.characterIndex += 1;
         }
     }
 
+    /**
+     * If the characters at the current position match the given sequence,
+     * skip them and return true. Otherwise, leave the position unchanged and
+     * return false.
+     */
+    public boolean tryConsume(CharSequence sequence) {
+        if (matches(sequence)) {
+            this.characterIndex += sequence.length();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Skip characters for as long as they satisfy the predicate.
+     */
+    public void skipWhile(IntPredicate predicate) {
+        var characterIndex = this.characterIndex;
+        while (
+            isLoaded(characterIndex + 1) &&
+                predicate.test(this.storage.charAt(characterIndex))
+        ) {
+            characterIndex++;
+        }
+        this.characterIndex = characterIndex;
+    }
+
+    /**
+     * Skip characters up to, but not including, the next occurrence of the
+     * given character, or to the end if there is no occurrence.
+     */
+    public void skipUntil(char character) {
+        var characterIndex = this.storage.indexOf(character, this.characterIndex);
+        this.characterIndex = characterIndex == -1 ? this.storage.length() : characterIndex;
+    }
+
+    /**
+     * Skip to the end of the current line, leaving the position before the
+     * line terminator.
+     */
+    public void skipToLineEnd() {
+        var lineTerminators = this.sourceText.lineTerminators();
+        if (lineTerminators == LineTerminators.LF) {
+            skipUntil('\n');
+        } else {
+            var characterIndex = this.characterIndex;
+            while (
+                isLoaded(characterIndex + 1) &&
+                    !lineTerminators.isTerminatorCharacter(this.storage.charAt(characterIndex))
+            ) {
+                characterIndex++;
+            }
+            this.characterIndex = characterIndex;
+        }
+    }
+
+    /**
+     * Skip the current code point, which may be one or two characters.
+     */
+    public void skipCodePoint() {
+        var codePoint = peekCodePoint();
+        if (codePoint != -1) {
+            this.characterIndex += Character.charCount(codePoint);
+        }
+    }
+
     public void skip(int length) {
-        this.characterIndex = Math.min(
-            this.characterIndex + length,
-            this.sourceText.characterLength()
-        );
+        this.characterIndex = isLoaded(this.characterIndex + length)
+            ? this.characterIndex + length
+            : this.loadedLength;
     }
 
     public SourceRange characterSourceRange() {
+        var start = position();
         var end = isEnd()
-            ? position()
+            ? start
             : this.sourceText.characterPosition(this.characterIndex + 1);
 
-        return position().to(end);
+        return start.to(end);
+    }
+
+    /**
+     * The range of the current character packed as with
+     * {@link SourceRange#pack(int, int)}.
+     */
+    public long packedCharacterSourceRange() {
+        return SourceRange.pack(
+            this.characterIndex,
+            isEnd() ? this.characterIndex : this.characterIndex + 1
+        );
+    }
+
+    private boolean isLoaded(int length) {
+        if (length <= this.loadedLength) {
+            return true;
+        }
+
+        this.loadedLength = this.storage.load(length);
+        return length <= this.loadedLength;
+    }
+
+    public int characterIndex() {
+        return this.characterIndex;
+    }
+
+    /**
+     * Move to the given character index without creating a position, such as
+     * the start of a token in a {@link TokenBuffer}.
+     */
+    public void characterIndex(int characterIndex) {
+        if (characterIndex < 0 || !isLoaded(characterIndex)) {
+            throw new IllegalArgumentException(String.format(
+                "Character index %s not in range",
+                characterIndex
+            ));
+        }
+
+        this.characterIndex = characterIndex;
     }
 
     public SourcePosition position() {
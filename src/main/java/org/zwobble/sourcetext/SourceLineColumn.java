@@ -0,0 +1,16 @@
+package org.zwobble.sourcetext;
+
+/**
+ * A line and column in a source text. Both indices start from zero: use
+ * {@link #lineNumber()} and {@link #columnNumber()} for the one-based numbers
+ * shown to users.
+ */
+public record SourceLineColumn(int lineIndex, int columnIndex) {
+    public int lineNumber() {
+        return this.lineIndex + 1;
+    }
+
+    public int columnNumber() {
+        return this.columnIndex + 1;
+    }
+}
@@ -0,0 +1,7 @@
+package org.zwobble.sourcetext;
+
+/**
+ * The lines and columns of the start and end of a source range.
+ */
+public record SourceLineRange(SourceLineColumn start, SourceLineColumn end) {
+}
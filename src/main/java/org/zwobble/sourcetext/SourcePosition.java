@@ -1,7 +1,5 @@
 package org.zwobble.sourcetext;
 
-import java.util.Objects;
-
 /**
  * A position in a source text. Rather than referring to a specific character,
  * a position is between characters, or at the start or end of the source text.
@@ -29,6 +27,10 @@ public class SourcePosition {
 
     @Override
     public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
         if (other == null) {
             return false;
         }
@@ -43,7 +45,7 @@ public class SourcePosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.sourceText, this.characterIndex);
+        return 31 * this.sourceText.hashCode() + this.characterIndex;
     }
 
     @Override
@@ -53,31 +55,26 @@ public class SourcePosition {
             return parentSourceText.get().originalPosition(this).toString();
         }
 
-        var lineIndex = 0;
-        var columnIndex = 0;
-
-        for (
-            var characterIndex = 0;
-            characterIndex <= this.sourceText.characterLength();
-            characterIndex++
-        ) {
-            if (characterIndex == this.characterIndex || characterIndex == this.sourceText.characterLength()) {
-                break;
-            }
-
-            if (this.sourceText.getCharacter(characterIndex) == '\n') {
-                lineIndex += 1;
-                columnIndex = 0;
-            } else {
-                columnIndex += 1;
-            }
-        }
+        var lineColumn = lineColumn();
 
         return String.format(
             "%s:%s:%s",
             this.sourceText.name(),
-            lineIndex + 1,
-            columnIndex + 1
+            lineColumn.lineNumber(),
+            lineColumn.columnNumber()
+        );
+    }
+
+    public SourceLineColumn lineColumn() {
+        return this.sourceText.lineColumn(
+            this.sourceText.clampCharacterIndex(this.characterIndex)
+        );
+    }
+
+    public SourceLineColumn lineColumn(ColumnMode columnMode) {
+        return this.sourceText.lineColumn(
+            this.sourceText.clampCharacterIndex(this.characterIndex),
+            columnMode
         );
     }
 }
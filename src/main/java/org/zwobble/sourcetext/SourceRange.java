@@ -1,8 +1,25 @@
 package org.zwobble.sourcetext;
 
-import java.util.Objects;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public class SourceRange implements Comparable<SourceRange> {
+    /**
+     * Pack the start and end character indices of a range into a single
+     * {@code long}, allowing ranges to be stored without allocating.
+     */
+    public static long pack(int startCharacterIndex, int endCharacterIndex) {
+        return ((long) startCharacterIndex << 32) | (endCharacterIndex & 0xffffffffL);
+    }
+
+    public static int packedStartCharacterIndex(long packedRange) {
+        return (int) (packedRange >>> 32);
+    }
+
+    public static int packedEndCharacterIndex(long packedRange) {
+        return (int) packedRange;
+    }
 
-public class SourceRange {
     private final SourceText sourceText;
     private final SourcePosition start;
     private final SourcePosition end;
@@ -24,6 +41,51 @@ public class SourceRange {
         );
     }
 
+    /**
+     * Check whether the characters in this range are the same as the given
+     * sequence, without copying the characters.
+     */
+    public boolean contentEquals(CharSequence sequence) {
+        return sequence.length() == characterLength() &&
+            this.sourceText.storage().regionMatches(this.start.characterIndex(), sequence);
+    }
+
+    /**
+     * The hash code of the characters in this range, which is the same as
+     * the hash code of a string with those characters.
+     */
+    public int contentHashCode() {
+        return this.sourceText.storage().contentHashCode(
+            this.start.characterIndex(),
+            this.end.characterIndex()
+        );
+    }
+
+    /**
+     * Copy the characters in this range into the destination array, starting
+     * at the destination index.
+     */
+    public void getChars(char[] destination, int destinationIndex) {
+        if (destinationIndex < 0 || destinationIndex > destination.length - characterLength()) {
+            throw new IndexOutOfBoundsException(destinationIndex);
+        }
+
+        this.sourceText.storage().getChars(
+            this.start.characterIndex(),
+            this.end.characterIndex(),
+            destination,
+            destinationIndex
+        );
+    }
+
+    public void appendTo(StringBuilder builder) {
+        this.sourceText.storage().appendTo(
+            builder,
+            this.start.characterIndex(),
+            this.end.characterIndex()
+        );
+    }
+
     public SourceText sourceText() {
         return this.sourceText;
     }
@@ -36,6 +98,10 @@ public class SourceRange {
         return this.end;
     }
 
+    public long packed() {
+        return pack(this.start.characterIndex(), this.end.characterIndex());
+    }
+
     public SourceRange to(SourceRange end) {
         return new SourceRange(
             this.sourceText,
@@ -61,72 +127,117 @@ public class SourceRange {
         return this.end.characterIndex() - this.start.characterIndex();
     }
 
+    /**
+     * Check whether the position is in this range. A range includes its start
+     * but not its end, so an empty range contains no positions.
+     */
+    public boolean contains(SourcePosition position) {
+        var characterIndex = position.characterIndex();
+        return this.sourceText.equals(position.sourceText()) &&
+            this.start.characterIndex() <= characterIndex &&
+            characterIndex < this.end.characterIndex();
+    }
+
+    /**
+     * Check whether this range and the other range have at least one
+     * character in common. An empty range, such as an insertion, overlaps a
+     * range that it's strictly inside, but not a range that it's at the start
+     * or end of.
+     */
+    public boolean overlaps(SourceRange other) {
+        if (!this.sourceText.equals(other.sourceText)) {
+            return false;
+        }
+
+        var startCharacterIndex = this.start.characterIndex();
+        var endCharacterIndex = this.end.characterIndex();
+        var otherStartCharacterIndex = other.start.characterIndex();
+        var otherEndCharacterIndex = other.end.characterIndex();
+        if (startCharacterIndex == endCharacterIndex) {
+            return otherStartCharacterIndex < startCharacterIndex && startCharacterIndex < otherEndCharacterIndex;
+        } else if (otherStartCharacterIndex == otherEndCharacterIndex) {
+            return startCharacterIndex < otherStartCharacterIndex && otherStartCharacterIndex < endCharacterIndex;
+        } else {
+            return startCharacterIndex < otherEndCharacterIndex && otherStartCharacterIndex < endCharacterIndex;
+        }
+    }
+
+    /**
+     * Compare ranges by their start, and then by their end. Only ranges in the
+     * same source text can be compared.
+     */
+    @Override
+    public int compareTo(SourceRange other) {
+        if (!this.sourceText.equals(other.sourceText)) {
+            throw new IllegalArgumentException(
+                "Source ranges must be in the same source text"
+            );
+        }
+
+        var result = Integer.compare(this.start.characterIndex(), other.start.characterIndex());
+        if (result == 0) {
+            result = Integer.compare(this.end.characterIndex(), other.end.characterIndex());
+        }
+        return result;
+    }
+
     public String describe() {
+        return describe(ColumnMode.utf16Units());
+    }
+
+    /**
+     * Describe this range, using the given column mode for the column number.
+     * Regardless of the column mode, the carets line up with the characters
+     * of the range when displayed.
+     */
+    public String describe(ColumnMode columnMode) {
         var parentSourceText = this.sourceText.parentSourceText();
         if (parentSourceText.isPresent()) {
             var start = parentSourceText.get().originalPosition(this.start);
             var end = parentSourceText.get().originalPosition(this.end);
-            return start.to(end).describe();
+            return start.to(end).describe(columnMode);
         }
 
-        var lineStartCharacterIndex = 0;
-        var lineIndex = 0;
-        var columnIndex = 0;
-
-        for (
-            var characterIndex = 0;
-            characterIndex < this.sourceText.characterLength();
-            characterIndex++
-        ) {
-            if (characterIndex == this.start.characterIndex()) {
-                var lineEndCharacterIndex = lineStartCharacterIndex;
-                while (
-                    lineEndCharacterIndex < this.sourceText.characterLength() &&
-                        this.sourceText.getCharacter(lineEndCharacterIndex) != '\n'
-                ) {
-                    lineEndCharacterIndex++;
-                }
-                return context(
-                    this.sourceText.charSequence(
-                        lineStartCharacterIndex,
-                        lineEndCharacterIndex
-                    ),
-                    lineIndex,
-                    columnIndex,
-                    lineEndCharacterIndex < this.end.characterIndex()
-                        ? 1
-                        : Math.max(this.end.characterIndex() - this.start.characterIndex(), 1)
-                );
-            }
-
-            if (this.sourceText.getCharacter(characterIndex) == '\n') {
-                lineIndex += 1;
-                columnIndex = 0;
-                lineStartCharacterIndex = characterIndex + 1;
-            } else {
-                columnIndex += 1;
-            }
-        }
+        var startCharacterIndex = this.sourceText.clampCharacterIndex(
+            this.start.characterIndex()
+        );
+        var lineIndex = this.sourceText.lineIndex(startCharacterIndex);
+        var lineStartCharacterIndex = this.sourceText.lineStart(lineIndex);
+        var lineEndCharacterIndex = this.sourceText.lineEnd(lineIndex);
 
-        return context(
-            this.sourceText.charSequence(
-                lineStartCharacterIndex,
-                this.sourceText.characterLength()
-            ),
-            lineIndex,
-            columnIndex,
-            1
+        var line = this.sourceText.charSequence(
+            lineStartCharacterIndex,
+            lineEndCharacterIndex
         );
-    }
+        var startOffset = startCharacterIndex - lineStartCharacterIndex;
+        var length = lineEndCharacterIndex < this.end.characterIndex()
+            ? 1
+            : Math.max(this.end.characterIndex() - this.start.characterIndex(), 1);
 
-    private String context(CharSequence line, int lineIndex, int columnIndex, int length) {
-        var lineNumber = lineIndex + 1;
-        var columnNumber = columnIndex + 1;
-        return this.sourceText.name() + ":" + lineNumber + ":" + columnNumber + "\n" + line + "\n" + " ".repeat(columnIndex) + "^".repeat(length);
+        var builder = new StringBuilder();
+        builder.append(this.sourceText.name())
+            .append(':')
+            .append(lineIndex + 1)
+            .append(':')
+            .append(this.sourceText.columnIndex(startCharacterIndex, columnMode) + 1)
+            .append('\n')
+            .append(line)
+            .append('\n');
+        try {
+            Carets.append(builder, line, startOffset, startOffset + length);
+        } catch (IOException exception) {
+            // Appending to a StringBuilder never throws.
+            throw new UncheckedIOException(exception);
+        }
+        return builder.toString();
     }
 
     @Override
     public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
         if (other == null) {
             return false;
         }
@@ -142,68 +253,30 @@ public class SourceRange {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.sourceText, this.start, this.end);
+        var hashCode = this.sourceText.hashCode();
+        hashCode = 31 * hashCode + this.start.hashCode();
+        hashCode = 31 * hashCode + this.end.hashCode();
+        return hashCode;
     }
 
     @Override
     public String toString() {
-        var lineRange = this.toLineRange();
+        var lineRange = this.lineRange();
 
         return String.format(
             "%s:%s:%s:%s:%s",
             this.sourceText.name(),
-            lineRange.startLineIndex + 1,
-            lineRange.startColumnIndex + 1,
-            lineRange.endLineIndex + 1,
-            lineRange.endColumnIndex + 1
+            lineRange.start().lineNumber(),
+            lineRange.start().columnNumber(),
+            lineRange.end().lineNumber(),
+            lineRange.end().columnNumber()
         );
     }
 
-    private SourceLineRange toLineRange() {
-        var lineIndex = 0;
-        var columnIndex = 0;
-        var startLineIndex = -1;
-        var startColumnIndex = -1;
-        var endLineIndex = -1;
-        var endColumnIndex = -1;
-
-        for (
-            var characterIndex = 0;
-            characterIndex <= this.sourceText.characterLength();
-            characterIndex++
-        ) {
-            if (characterIndex == this.start.characterIndex()) {
-                startLineIndex = lineIndex;
-                startColumnIndex = columnIndex;
-            }
-
-            if (characterIndex == this.end.characterIndex() || characterIndex == this.sourceText.characterLength()) {
-                endLineIndex = lineIndex;
-                endColumnIndex = columnIndex;
-                break;
-            }
-
-            if (this.sourceText.getCharacter(characterIndex) == '\n') {
-                lineIndex += 1;
-                columnIndex = 0;
-            } else {
-                columnIndex += 1;
-            }
-        }
-
+    public SourceLineRange lineRange() {
         return new SourceLineRange(
-            startLineIndex,
-            startColumnIndex,
-            endLineIndex,
-            endColumnIndex
+            this.sourceText.lineColumn(this.sourceText.clampCharacterIndex(this.start.characterIndex())),
+            this.sourceText.lineColumn(this.sourceText.clampCharacterIndex(this.end.characterIndex()))
         );
     }
-
-    private record SourceLineRange(
-        int startLineIndex,
-        int startColumnIndex,
-        int endLineIndex,
-        int endColumnIndex
-    ) {
-    }
 }
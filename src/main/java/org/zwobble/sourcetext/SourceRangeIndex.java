@@ -0,0 +1,234 @@
+package org.zwobble.sourcetext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable index of ranges in a single source text, for finding the
+ * ranges that contain a position or overlap a range in O(log n + k) time.
+ * <p>
+ * Ranges are identified by their index in the list that the index was created
+ * from, so callers can keep their own data, such as syntax nodes, alongside
+ * the ranges. As with {@link SourceRange#contains(SourcePosition)} and
+ * {@link SourceRange#overlaps(SourceRange)}, an empty range never contains a
+ * position, but overlaps the ranges that it's strictly inside.
+ */
+public final class SourceRangeIndex {
+    public static SourceRangeIndex create(
+        SourceText sourceText,
+        List<SourceRange> sourceRanges
+    ) {
+        var rangeCount = sourceRanges.size();
+
+        // Sort by start, keeping ranges with the same start in their original
+        // order, without boxing.
+        var order = new long[rangeCount];
+        for (var index = 0; index < rangeCount; index++) {
+            var sourceRange = sourceRanges.get(index);
+            if (!sourceRange.sourceText().equals(sourceText)) {
+                throw new IllegalArgumentException(String.format(
+                    "Source range %s is not in source text %s",
+                    index,
+                    sourceText.name()
+                ));
+            }
+            order[index] = ((long) sourceRange.start().characterIndex() << 32) | index;
+        }
+        Arrays.sort(order);
+
+        var starts = new int[rangeCount];
+        var ends = new int[rangeCount];
+        var ids = new int[rangeCount];
+        for (var index = 0; index < rangeCount; index++) {
+            var id = (int) order[index];
+            starts[index] = (int) (order[index] >>> 32);
+            ends[index] = sourceRanges.get(id).end().characterIndex();
+            ids[index] = id;
+        }
+
+        var maxEnds = new int[rangeCount];
+        buildMaxEnds(ends, maxEnds, 0, rangeCount);
+
+        return new SourceRangeIndex(sourceText, starts, ends, maxEnds, ids);
+    }
+
+    /**
+     * The sorted ranges form an implicit binary search tree, with the middle
+     * range of each subarray as the root of that subarray. Each root holds
+     * the greatest end in its subarray, so subarrays that end before a query
+     * can be skipped.
+     */
+    private static int buildMaxEnds(int[] ends, int[] maxEnds, int startIndex, int endIndex) {
+        if (startIndex >= endIndex) {
+            return Integer.MIN_VALUE;
+        }
+
+        var middleIndex = (startIndex + endIndex) >>> 1;
+        var maxEnd = Math.max(
+            ends[middleIndex],
+            Math.max(
+                buildMaxEnds(ends, maxEnds, startIndex, middleIndex),
+                buildMaxEnds(ends, maxEnds, middleIndex + 1, endIndex)
+            )
+        );
+        maxEnds[middleIndex] = maxEnd;
+        return maxEnd;
+    }
+
+    private final SourceText sourceText;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds;
+    private final int[] ids;
+
+    private SourceRangeIndex(
+        SourceText sourceText,
+        int[] starts,
+        int[] ends,
+        int[] maxEnds,
+        int[] ids
+    ) {
+        this.sourceText = sourceText;
+        this.starts = starts;
+        this.ends = ends;
+        this.maxEnds = maxEnds;
+        this.ids = ids;
+    }
+
+    public SourceText sourceText() {
+        return this.sourceText;
+    }
+
+    public int size() {
+        return this.ids.length;
+    }
+
+    /**
+     * The indices of the ranges that contain the position, in order of start.
+     */
+    public int[] containing(SourcePosition position) {
+        checkSourceText(position.sourceText());
+        var characterIndex = position.characterIndex();
+        return collect(characterIndex, characterIndex + 1);
+    }
+
+    /**
+     * The index of the shortest range that contains the position, such as
+     * the innermost syntax node, or -1 if no range contains the position.
+     * When several ranges are equally short, the range that starts last is
+     * used, and then the range that appears last.
+     */
+    public int innermostContaining(SourcePosition position) {
+        checkSourceText(position.sourceText());
+        var characterIndex = position.characterIndex();
+        var innermost = new Innermost();
+        visit(0, this.ids.length, characterIndex, characterIndex + 1, innermost);
+        return innermost.sortedIndex == -1 ? -1 : this.ids[innermost.sortedIndex];
+    }
+
+    /**
+     * The indices of the ranges that overlap the range, in order of start.
+     */
+    public int[] overlapping(SourceRange sourceRange) {
+        checkSourceText(sourceRange.sourceText());
+        return collect(
+            sourceRange.start().characterIndex(),
+            sourceRange.end().characterIndex()
+        );
+    }
+
+    /**
+     * Call the action with the index of each range that overlaps the
+     * characters from start to end, in order of start, without allocating.
+     * Overlapping is the same as {@link SourceRange#overlaps(SourceRange)}.
+     */
+    public void forEachOverlapping(
+        int startCharacterIndex,
+        int endCharacterIndex,
+        IntConsumer action
+    ) {
+        visit(
+            0,
+            this.ids.length,
+            startCharacterIndex,
+            endCharacterIndex,
+            sortedIndex -> action.accept(this.ids[sortedIndex])
+        );
+    }
+
+    private int[] collect(int startCharacterIndex, int endCharacterIndex) {
+        var collector = new Collector();
+        forEachOverlapping(startCharacterIndex, endCharacterIndex, collector);
+        return Arrays.copyOf(collector.ids, collector.count);
+    }
+
+    private void visit(
+        int startIndex,
+        int endIndex,
+        int startCharacterIndex,
+        int endCharacterIndex,
+        IntConsumer action
+    ) {
+        while (startIndex < endIndex) {
+            var middleIndex = (startIndex + endIndex) >>> 1;
+            if (this.maxEnds[middleIndex] <= startCharacterIndex) {
+                return;
+            }
+
+            visit(startIndex, middleIndex, startCharacterIndex, endCharacterIndex, action);
+
+            // Ranges after the middle range start no earlier than it.
+            if (this.starts[middleIndex] >= endCharacterIndex) {
+                return;
+            }
+            // The middle range starts before the end of the query, so it
+            // overlaps if it ends after the start of the query. An empty range
+            // must instead start after the start of the query, which can't
+            // happen when the query is also empty.
+            var start = this.starts[middleIndex];
+            var end = this.ends[middleIndex];
+            if (start == end ? start > startCharacterIndex : end > startCharacterIndex) {
+                action.accept(middleIndex);
+            }
+
+            startIndex = middleIndex + 1;
+        }
+    }
+
+    private void checkSourceText(SourceText sourceText) {
+        if (!sourceText.equals(this.sourceText)) {
+            throw new IllegalArgumentException(String.format(
+                "Source text %s is not the source text of this index",
+                sourceText.name()
+            ));
+        }
+    }
+
+    private static final class Collector implements IntConsumer {
+        private int[] ids = new int[8];
+        private int count = 0;
+
+        @Override
+        public void accept(int id) {
+            if (this.count == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.count * 2);
+            }
+            this.ids[this.count++] = id;
+        }
+    }
+
+    private final class Innermost implements IntConsumer {
+        private int sortedIndex = -1;
+        private int length = Integer.MAX_VALUE;
+
+        @Override
+        public void accept(int sortedIndex) {
+            var length = SourceRangeIndex.this.ends[sortedIndex] - SourceRangeIndex.this.starts[sortedIndex];
+            if (length <= this.length) {
+                this.sortedIndex = sortedIndex;
+                this.length = length;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.zwobble.sourcetext;
+
+/**
+ * A reusable view of the characters in a range of a source text. Resetting
+ * the view to a different range doesn't allocate, so a single view can be
+ * used to look up many ranges, such as identifiers in a symbol table.
+ * <p>
+ * Since the view is mutable, it uses identity for {@code equals} and
+ * {@code hashCode}: use {@link #contentEquals(CharSequence)} and
+ * {@link #contentHashCode()} to compare characters.
+ */
+public final class SourceRangeView implements CharSequence {
+    private SourceTextStorage storage = new StringStorage("");
+    private int startIndex = 0;
+    private int endIndex = 0;
+
+    public SourceRangeView() {
+    }
+
+    public SourceRangeView reset(SourceRange sourceRange) {
+        this.storage = sourceRange.sourceText().storage();
+        this.startIndex = sourceRange.start().characterIndex();
+        this.endIndex = sourceRange.end().characterIndex();
+        return this;
+    }
+
+    public SourceRangeView reset(
+        SourceText sourceText,
+        int startCharacterIndex,
+        int endCharacterIndex
+    ) {
+        if (
+            startCharacterIndex < 0 ||
+                startCharacterIndex > endCharacterIndex ||
+                endCharacterIndex > sourceText.storage().load(endCharacterIndex)
+        ) {
+            throw new IllegalArgumentException(String.format(
+                "Character range %s to %s not in range",
+                startCharacterIndex,
+                endCharacterIndex
+            ));
+        }
+
+        this.storage = sourceText.storage();
+        this.startIndex = startCharacterIndex;
+        this.endIndex = endCharacterIndex;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return this.endIndex - this.startIndex;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        return this.storage.charAt(this.startIndex + index);
+    }
+
+    /**
+     * Get a sequence of the characters from start to end. Unlike this view,
+     * the returned sequence isn't changed when this view is reset.
+     */
+    @Override
+    public CharSequence subSequence(int startIndex, int endIndex) {
+        if (startIndex < 0 || endIndex > length() || startIndex > endIndex) {
+            throw new IndexOutOfBoundsException(String.format(
+                "Range [%s, %s) out of bounds for length %s",
+                startIndex,
+                endIndex,
+                length()
+            ));
+        }
+
+        return this.storage.charSequence(
+            this.startIndex + startIndex,
+            this.startIndex + endIndex
+        );
+    }
+
+    public boolean contentEquals(CharSequence sequence) {
+        return sequence.length() == length() &&
+            this.storage.regionMatches(this.startIndex, sequence);
+    }
+
+    /**
+     * The hash code of the characters in this view, which is the same as the
+     * hash code of a string with those characters.
+     */
+    public int contentHashCode() {
+        return this.storage.contentHashCode(this.startIndex, this.endIndex);
+    }
+
+    public void getChars(char[] destination, int destinationIndex) {
+        if (destinationIndex < 0 || destinationIndex > destination.length - length()) {
+            throw new IndexOutOfBoundsException(destinationIndex);
+        }
+
+        this.storage.getChars(this.startIndex, this.endIndex, destination, destinationIndex);
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder(length());
+        this.storage.appendTo(builder, this.startIndex, this.endIndex);
+        return builder.toString();
+    }
+}
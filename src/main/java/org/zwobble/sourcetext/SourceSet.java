@@ -0,0 +1,148 @@
+package org.zwobble.sourcetext;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A set of source texts that share a single address space of offsets, so a
+ * position in any of the source texts can be stored as a single {@code int},
+ * and a range as a single {@code long}, without a reference to its source
+ * text.
+ * <p>
+ * Each source text is given a base offset when it's added, and the positions
+ * in that source text are at the base offset plus their character index. The
+ * offsets of adjacent source texts are separated by one, so the position at the
+ * end of one source text is never the same as the position at the start of
+ * the next.
+ */
+public final class SourceSet {
+    public static SourceSet create() {
+        return new SourceSet();
+    }
+
+    private final Map<SourceText, Integer> baseOffsets = new HashMap<>();
+    private SourceText[] sourceTexts = new SourceText[16];
+    private int[] sortedBaseOffsets = new int[16];
+    private int sourceTextCount = 0;
+    private int nextBaseOffset = 0;
+
+    private SourceSet() {
+    }
+
+    /**
+     * Add a source text to this set, returning its base offset. Adding a
+     * source text that's already in this set returns its existing base offset.
+     */
+    public int add(SourceText sourceText) {
+        var existingBaseOffset = this.baseOffsets.get(sourceText);
+        if (existingBaseOffset != null) {
+            return existingBaseOffset;
+        }
+
+        var baseOffset = this.nextBaseOffset;
+        var nextBaseOffset = (long) baseOffset + sourceText.characterLength() + 1;
+        if (nextBaseOffset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format(
+                "Source text %s does not fit in source set",
+                sourceText.name()
+            ));
+        }
+
+        if (this.sourceTextCount == this.sourceTexts.length) {
+            var capacity = this.sourceTextCount * 2;
+            this.sourceTexts = Arrays.copyOf(this.sourceTexts, capacity);
+            this.sortedBaseOffsets = Arrays.copyOf(this.sortedBaseOffsets, capacity);
+        }
+        this.sourceTexts[this.sourceTextCount] = sourceText;
+        this.sortedBaseOffsets[this.sourceTextCount] = baseOffset;
+        this.sourceTextCount++;
+        this.baseOffsets.put(sourceText, baseOffset);
+        this.nextBaseOffset = (int) nextBaseOffset;
+
+        return baseOffset;
+    }
+
+    public int sourceTextCount() {
+        return this.sourceTextCount;
+    }
+
+    public int baseOffset(SourceText sourceText) {
+        var baseOffset = this.baseOffsets.get(sourceText);
+        if (baseOffset == null) {
+            throw new IllegalArgumentException(String.format(
+                "Source text %s is not in source set",
+                sourceText.name()
+            ));
+        }
+        return baseOffset;
+    }
+
+    public int offset(SourcePosition position) {
+        return baseOffset(position.sourceText()) + position.characterIndex();
+    }
+
+    /**
+     * Pack the offsets of the start and end of a range, as with
+     * {@link SourceRange#pack(int, int)}.
+     */
+    public long pack(SourceRange sourceRange) {
+        var baseOffset = baseOffset(sourceRange.sourceText());
+        return SourceRange.pack(
+            baseOffset + sourceRange.start().characterIndex(),
+            baseOffset + sourceRange.end().characterIndex()
+        );
+    }
+
+    /**
+     * Find the source text containing the given offset.
+     */
+    public SourceText sourceText(int offset) {
+        return this.sourceTexts[sourceTextIndex(offset)];
+    }
+
+    public SourcePosition position(int offset) {
+        var sourceTextIndex = sourceTextIndex(offset);
+        return this.sourceTexts[sourceTextIndex].characterPosition(
+            offset - this.sortedBaseOffsets[sourceTextIndex]
+        );
+    }
+
+    /**
+     * Get the range between two offsets, which must be in the same source
+     * text.
+     */
+    public SourceRange sourceRange(int startOffset, int endOffset) {
+        var sourceTextIndex = sourceTextIndex(startOffset);
+        var baseOffset = this.sortedBaseOffsets[sourceTextIndex];
+        var sourceText = this.sourceTexts[sourceTextIndex];
+        if (endOffset < startOffset || endOffset - baseOffset > sourceText.characterLength()) {
+            throw new IllegalArgumentException(String.format(
+                "Offsets %s to %s are not in the same source text",
+                startOffset,
+                endOffset
+            ));
+        }
+
+        return sourceText.sourceRange(startOffset - baseOffset, endOffset - baseOffset);
+    }
+
+    public SourceRange sourceRange(long packedRange) {
+        return sourceRange(
+            SourceRange.packedStartCharacterIndex(packedRange),
+            SourceRange.packedEndCharacterIndex(packedRange)
+        );
+    }
+
+    private int sourceTextIndex(int offset) {
+        if (offset < 0 || offset >= this.nextBaseOffset) {
+            throw new IllegalArgumentException(String.format(
+                "Offset %s not in range",
+                offset
+            ));
+        }
+
+        var index = Arrays.binarySearch(this.sortedBaseOffsets, 0, this.sourceTextCount, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+}
@@ -1,27 +1,185 @@
 package org.zwobble.sourcetext;
 
-import java.nio.CharBuffer;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * A source text, such as the contents of a file.
+ * <p>
+ * Source texts can be read from multiple threads at once. Indices that are
+ * built lazily, such as the line index, are published without locking, so
+ * multiple threads may each build the same index, with all but one copy being
+ * discarded. The exception is source texts created from readers and
+ * channels, which must only be read from a single thread.
+ */
 public class SourceText {
     public static SourceText fromString(String name, String string) {
-        return new SourceText(name, CharBuffer.wrap(string), Optional.empty());
+        return new SourceText(name, new StringStorage(string), Optional.empty());
+    }
+
+    public static SourceText fromPath(Path path) throws IOException {
+        return fromPath(path, StandardCharsets.UTF_8);
+    }
+
+    public static SourceText fromPath(Path path, Charset charset) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return fromFileChannel(path.toString(), channel, charset);
+        }
+    }
+
+    /**
+     * Create a source text from the entire contents of a file channel. The
+     * file is memory-mapped rather than read onto the heap, and remains mapped
+     * after the channel is closed.
+     */
+    public static SourceText fromFileChannel(
+        String name,
+        FileChannel channel,
+        Charset charset
+    ) throws IOException {
+        var size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format(
+                "File of %s bytes is too large for a source text",
+                size
+            ));
+        }
+
+        var bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return fromByteBuffer(name, bytes, charset);
+    }
+
+    /**
+     * Create a source text from the remaining bytes of a buffer. When every
+     * byte is a single character, such as ISO-8859-1 text, or UTF-8 text that
+     * only contains ASCII, then the buffer is used directly without copying.
+     * Otherwise, the bytes are decoded, and if every decoded character is in
+     * ISO-8859-1, the characters are still stored as a single byte each.
+     */
+    public static SourceText fromByteBuffer(
+        String name,
+        ByteBuffer byteBuffer,
+        Charset charset
+    ) {
+        var bytes = byteBuffer.slice();
+
+        var isSingleByte = charset.equals(StandardCharsets.ISO_8859_1) || (
+            (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)) &&
+                ByteStorage.isAscii(bytes)
+        );
+        SourceTextStorage storage;
+        if (isSingleByte) {
+            storage = new ByteStorage(bytes);
+        } else {
+            var characters = charset.decode(bytes.duplicate());
+            storage = ByteStorage.isLatin1(characters)
+                ? ByteStorage.fromLatin1(characters)
+                : new CharBufferStorage(characters);
+        }
+
+        return new SourceText(name, storage, Optional.empty());
+    }
+
+    /**
+     * Create a source text that reads characters from the reader as they're
+     * needed, such as when a character iterator moves forward. Memory use can
+     * be bounded by calling {@link #releaseBefore(int)} as the text is
+     * consumed.
+     * <p>
+     * Methods that depend on the length of the text, such as
+     * {@link #characterLength()}, read all remaining characters. Errors when
+     * reading are thrown as {@link java.io.UncheckedIOException}.
+     */
+    public static SourceText fromReader(String name, Reader reader) {
+        return fromReader(name, reader, LineTerminators.LF);
+    }
+
+    /**
+     * Create a source text that reads characters from the reader as they're
+     * needed, as with {@link #fromReader(String, Reader)}, using the given
+     * line terminators to find lines.
+     */
+    public static SourceText fromReader(
+        String name,
+        Reader reader,
+        LineTerminators lineTerminators
+    ) {
+        var storage = new StreamingStorage(reader, lineTerminators);
+        var sourceText = new SourceText(name, storage, Optional.empty(), lineTerminators);
+        sourceText.lineIndex = storage.lineIndex();
+        return sourceText;
+    }
+
+    /**
+     * Create a source text that decodes characters from the channel as
+     * they're needed, as with {@link #fromReader(String, Reader)}.
+     */
+    public static SourceText fromChannel(
+        String name,
+        ReadableByteChannel channel,
+        Charset charset
+    ) {
+        return fromChannel(name, channel, charset, LineTerminators.LF);
+    }
+
+    public static SourceText fromChannel(
+        String name,
+        ReadableByteChannel channel,
+        Charset charset,
+        LineTerminators lineTerminators
+    ) {
+        var decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return fromReader(name, Channels.newReader(channel, decoder, -1), lineTerminators);
     }
 
     public static SourceText derived(SourceText original, String string, PositionMapper positionMapper) {
         return new SourceText(
             original.name,
-            CharBuffer.wrap(string),
-            Optional.of(new ParentSourceText(original, positionMapper))
+            new StringStorage(string),
+            Optional.of(ParentSourceText.create(original, positionMapper))
         );
     }
 
+    public static DerivedSourceTextBuilder derivedBuilder(SourceText original) {
+        return new DerivedSourceTextBuilder(original);
+    }
+
     @FunctionalInterface
     public interface PositionMapper {
         int derivedCharacterIndexToOriginalCharacterIndex(int derivedCharacterIndex);
     }
 
     record ParentSourceText(SourceText sourceText, PositionMapper positionMapper) {
+        static ParentSourceText create(SourceText original, PositionMapper positionMapper) {
+            if (
+                positionMapper instanceof SegmentedPositionMapper segmentedPositionMapper &&
+                    original.parentSourceText.isPresent() &&
+                    original.parentSourceText.get().positionMapper instanceof SegmentedPositionMapper parentPositionMapper
+            ) {
+                return new ParentSourceText(
+                    original.parentSourceText.get().sourceText,
+                    parentPositionMapper.compose(segmentedPositionMapper)
+                );
+            }
+
+            return new ParentSourceText(original, positionMapper);
+        }
+
         SourcePosition originalPosition(SourcePosition derivedPosition) {
             var originalCharacterIndex = positionMapper
                 .derivedCharacterIndexToOriginalCharacterIndex(derivedPosition.characterIndex());
@@ -29,48 +187,460 @@ public class SourceText {
         }
     }
 
+    private static final int POSITION_CACHE_SIZE = 128;
+    private static final int COLUMN_TABLE_CACHE_SIZE = 64;
+    private static final byte UNKNOWN = 0;
+    private static final byte NO = 1;
+    private static final byte YES = 2;
+
     private final String name;
-    private final CharBuffer charBuffer;
+    private final SourceTextStorage storage;
     private final Optional<ParentSourceText> parentSourceText;
+    private final LineTerminators lineTerminators;
+    private volatile LineIndex lineIndex;
+    // Since positions are immutable, a thread that reads a stale entry sees
+    // either null or a valid position.
+    private SourcePosition[] positionCache;
+    // As with the position cache, column tables are immutable.
+    private ColumnTable[] columnTableCache;
+    private byte containsSurrogates = UNKNOWN;
 
-    private SourceText(String name, CharBuffer charBuffer, Optional<ParentSourceText> parentSourceText) {
+    private SourceText(
+        String name,
+        SourceTextStorage storage,
+        Optional<ParentSourceText> parentSourceText
+    ) {
+        this(name, storage, parentSourceText, LineTerminators.LF);
+    }
+
+    private SourceText(
+        String name,
+        SourceTextStorage storage,
+        Optional<ParentSourceText> parentSourceText,
+        LineTerminators lineTerminators
+    ) {
         this.name = name;
-        this.charBuffer = charBuffer;
+        this.storage = storage;
         this.parentSourceText = parentSourceText;
+        this.lineTerminators = lineTerminators;
     }
 
     public String name() {
         return this.name;
     }
 
+    public LineTerminators lineTerminators() {
+        return this.lineTerminators;
+    }
+
+    /**
+     * Create a source text with the same characters as this source text, but
+     * using the given line terminators to find lines. The characters are
+     * shared rather than copied, and line terminators are left in the text:
+     * only the line index and the ends of lines are affected.
+     * <p>
+     * Source texts created from readers and channels find lines as characters
+     * are read, so their line terminators must be given when they're created.
+     */
+    public SourceText withLineTerminators(LineTerminators lineTerminators) {
+        if (lineTerminators == this.lineTerminators) {
+            return this;
+        }
+
+        if (this.storage instanceof StreamingStorage) {
+            throw new IllegalStateException(
+                "Line terminators of source texts created from readers must be set when they're created"
+            );
+        }
+
+        return new SourceText(this.name, this.storage, this.parentSourceText, lineTerminators);
+    }
+
     public CharSequence charSequence() {
-        return this.charBuffer;
+        return this.storage.charSequence();
     }
 
     public CharSequence charSequence(
         int startCharacterIndex,
         int endCharacterIndex
     ) {
-        return this.charBuffer.subSequence(
+        return this.storage.charSequence(
             startCharacterIndex,
             endCharacterIndex
         );
     }
 
     public int characterLength() {
-        return this.charBuffer.length();
+        return this.storage.length();
     }
 
     public int getCharacter(int characterIndex) {
-        return this.charBuffer.get(characterIndex);
+        return this.storage.charAt(characterIndex);
+    }
+
+    public int lineIndex(int characterIndex) {
+        checkCharacterIndex(characterIndex);
+        return lineIndex().lineIndex(characterIndex);
+    }
+
+    public int columnIndex(int characterIndex) {
+        checkCharacterIndex(characterIndex);
+        var lineIndex = lineIndex();
+        return characterIndex - lineIndex.lineStart(lineIndex.lineIndex(characterIndex));
+    }
+
+    public SourceLineColumn lineColumn(int characterIndex) {
+        checkCharacterIndex(characterIndex);
+        var lineIndex = lineIndex();
+        var lineIndexOfCharacter = lineIndex.lineIndex(characterIndex);
+        return new SourceLineColumn(
+            lineIndexOfCharacter,
+            characterIndex - lineIndex.lineStart(lineIndexOfCharacter)
+        );
+    }
+
+    /**
+     * Find the lines and columns of many character indices at once. The
+     * character indices must be in ascending order, which allows them all to
+     * be resolved in a single forward pass.
+     */
+    public SourceLineColumn[] lineColumns(int[] characterIndices) {
+        var lineIndex = lineIndex();
+        var lineColumns = new SourceLineColumn[characterIndices.length];
+        var currentLineIndex = 0;
+        var previousCharacterIndex = 0;
+
+        for (var i = 0; i < characterIndices.length; i++) {
+            var characterIndex = characterIndices[i];
+            checkCharacterIndex(characterIndex);
+            if (characterIndex < previousCharacterIndex) {
+                throw new IllegalArgumentException(String.format(
+                    "Character indices must be in ascending order, but %s follows %s",
+                    characterIndex,
+                    previousCharacterIndex
+                ));
+            }
+            previousCharacterIndex = characterIndex;
+
+            while (
+                currentLineIndex + 1 < lineIndex.lineCount() &&
+                    lineIndex.lineStart(currentLineIndex + 1) <= characterIndex
+            ) {
+                currentLineIndex++;
+            }
+
+            lineColumns[i] = new SourceLineColumn(
+                currentLineIndex,
+                characterIndex - lineIndex.lineStart(currentLineIndex)
+            );
+        }
+
+        return lineColumns;
+    }
+
+    /**
+     * The column of a character index, counting each code point as a single
+     * column rather than each UTF-16 unit.
+     */
+    public int codePointColumnIndex(int characterIndex) {
+        return columnIndex(characterIndex, ColumnMode.codePoints());
+    }
+
+    /**
+     * The column of a character index, counting columns using the given
+     * column mode. The columns of each line are computed once for each column
+     * mode, and then cached.
+     */
+    public int columnIndex(int characterIndex, ColumnMode columnMode) {
+        checkCharacterIndex(characterIndex);
+        var lineIndex = lineIndex();
+        var lineIndexOfCharacter = lineIndex.lineIndex(characterIndex);
+        var offset = characterIndex - lineIndex.lineStart(lineIndexOfCharacter);
+        if (columnMode.isUtf16Units()) {
+            return offset;
+        }
+
+        return columnTable(lineIndexOfCharacter, columnMode).columnIndex(offset);
+    }
+
+    public SourceLineColumn lineColumn(int characterIndex, ColumnMode columnMode) {
+        return new SourceLineColumn(
+            lineIndex(characterIndex),
+            columnIndex(characterIndex, columnMode)
+        );
+    }
+
+    public int lineStart(int lineIndex) {
+        if (lineIndex < 0) {
+            throw new IllegalArgumentException(String.format(
+                "Line index %s not in range",
+                lineIndex
+            ));
+        }
+
+        var index = loadLines(lineIndex + 1);
+        if (lineIndex >= index.lineCount()) {
+            throw new IllegalArgumentException(String.format(
+                "Line index %s not in range",
+                lineIndex
+            ));
+        }
+
+        return index.lineStart(lineIndex);
+    }
+
+    public int lineCount() {
+        return loadLines(Integer.MAX_VALUE).lineCount();
+    }
+
+    /**
+     * The range of a line, excluding the line terminator.
+     */
+    public SourceRange lineSourceRange(int lineIndex) {
+        return sourceRange(lineStart(lineIndex), lineEnd(lineIndex));
+    }
+
+    /**
+     * A stream of the range of each line, excluding line terminators. The
+     * stream splits by line, so it can be processed in parallel.
+     */
+    public Stream<SourceRange> lines() {
+        return StreamSupport.stream(
+            new LineSpliterator(this, 0, lineCount()),
+            false
+        );
+    }
+
+    /**
+     * A stream of the characters of this source text. The stream splits by
+     * character index, so it can be processed in parallel.
+     */
+    public IntStream characters() {
+        var storage = this.storage;
+        return IntStream.range(0, storage.length()).map(storage::charAt);
+    }
+
+    boolean hasLine(int lineIndex) {
+        return lineIndex >= 0 && lineIndex < loadLines(lineIndex + 1).lineCount();
+    }
+
+    /**
+     * The character index of the end of the line, excluding the line
+     * terminator.
+     */
+    int lineEnd(int lineIndex) {
+        var index = loadLines(lineIndex + 2);
+        if (lineIndex + 1 < index.lineCount()) {
+            var nextLineStart = index.lineStart(lineIndex + 1);
+            return nextLineStart - this.lineTerminators.terminatorLength(this.storage, nextLineStart);
+        } else {
+            return characterLength();
+        }
+    }
+
+    private LineIndex lineIndex() {
+        var lineIndex = this.lineIndex;
+        if (lineIndex == null) {
+            lineIndex = LineIndex.build(this.storage, this.lineTerminators);
+            this.lineIndex = lineIndex;
+        }
+        return lineIndex;
+    }
+
+    private ColumnTable columnTable(int lineIndex, ColumnMode columnMode) {
+        var columnTableCache = this.columnTableCache;
+        if (columnTableCache == null) {
+            columnTableCache = new ColumnTable[COLUMN_TABLE_CACHE_SIZE];
+            this.columnTableCache = columnTableCache;
+        }
+
+        var cacheIndex = (31 * lineIndex + columnMode.hashCode()) & (COLUMN_TABLE_CACHE_SIZE - 1);
+        var columnTable = columnTableCache[cacheIndex];
+        if (columnTable == null || !columnTable.isFor(lineIndex, columnMode)) {
+            columnTable = ColumnTable.build(
+                this.storage,
+                lineIndex,
+                lineStart(lineIndex),
+                lineEnd(lineIndex),
+                columnMode
+            );
+            columnTableCache[cacheIndex] = columnTable;
+        }
+
+        return columnTable;
+    }
+
+    /**
+     * Get the line index, first loading characters until the line index has
+     * at least the given number of lines, or all characters are loaded.
+     */
+    private LineIndex loadLines(int lineCount) {
+        var lineIndex = lineIndex();
+        while (lineIndex.lineCount() < lineCount) {
+            var loadedLength = this.storage.load(0);
+            if (this.storage.load(loadedLength + 1) == loadedLength) {
+                break;
+            }
+        }
+        return lineIndex;
+    }
+
+    /**
+     * Clamp a character index to the end of this source text, without
+     * loading more characters than necessary.
+     */
+    int clampCharacterIndex(int characterIndex) {
+        return Math.min(characterIndex, this.storage.load(characterIndex));
+    }
+
+    private void checkCharacterIndex(int characterIndex) {
+        if (characterIndex < 0 || characterIndex > this.storage.load(characterIndex)) {
+            throw new IllegalArgumentException(String.format(
+                "Character index %s not in range",
+                characterIndex
+            ));
+        }
+    }
+
+    /**
+     * Discard the line index and other caches, which are rebuilt when next
+     * needed.
+     */
+    void discardIndices() {
+        if (!(this.storage instanceof StreamingStorage)) {
+            this.lineIndex = null;
+        }
+        this.positionCache = null;
+        this.columnTableCache = null;
+    }
+
+    SourceTextStorage storage() {
+        return this.storage;
+    }
+
+    boolean containsSurrogates() {
+        var containsSurrogates = this.containsSurrogates;
+        if (containsSurrogates == UNKNOWN) {
+            containsSurrogates = this.storage.containsSurrogates() ? YES : NO;
+            this.containsSurrogates = containsSurrogates;
+        }
+        return containsSurrogates == YES;
+    }
+
+    /**
+     * Allow the characters before the given index to be discarded. Reading
+     * discarded characters throws {@link IllegalStateException}, although the
+     * lines and columns of discarded characters can still be found. This only
+     * has an effect on source texts created from readers and channels, since
+     * other source texts always keep all of their characters.
+     */
+    public void releaseBefore(int characterIndex) {
+        this.storage.releaseBefore(characterIndex);
+    }
+
+    /**
+     * Create a new version of this source text with the given range replaced.
+     * The new version shares unchanged characters with this source text, and
+     * if the line index of this source text has already been built, the line
+     * index of the new version is updated from it without rescanning.
+     * <p>
+     * The new version has the same name as this source text, but is never
+     * derived from another source text, even if this source text is.
+     */
+    public SourceTextEdit applyEdit(SourceRange sourceRange, CharSequence replacement) {
+        if (!sourceRange.sourceText().equals(this)) {
+            throw new IllegalArgumentException(
+                "Source range must be in this source text"
+            );
+        }
+
+        var startCharacterIndex = sourceRange.start().characterIndex();
+        var endCharacterIndex = sourceRange.end().characterIndex();
+        if (
+            startCharacterIndex < 0 ||
+                startCharacterIndex > endCharacterIndex ||
+                endCharacterIndex > characterLength()
+        ) {
+            throw new IllegalArgumentException(String.format(
+                "Character range %s to %s not in range",
+                startCharacterIndex,
+                endCharacterIndex
+            ));
+        }
+        var replacementString = replacement.toString();
+
+        var newSourceText = new SourceText(
+            this.name,
+            PieceTableStorage.replace(
+                this.storage,
+                startCharacterIndex,
+                endCharacterIndex,
+                replacementString
+            ),
+            Optional.empty(),
+            this.lineTerminators
+        );
+
+        var lineIndex = this.lineIndex;
+        if (lineIndex != null) {
+            newSourceText.lineIndex = LineIndex.edited(
+                lineIndex,
+                startCharacterIndex,
+                endCharacterIndex,
+                replacementString,
+                newSourceText.storage,
+                this.lineTerminators
+            );
+        }
+
+        return new SourceTextEdit(
+            this,
+            newSourceText,
+            startCharacterIndex,
+            endCharacterIndex,
+            startCharacterIndex + replacementString.length()
+        );
     }
 
     public SourceCharacterIterator characterIterator() {
         return new SourceCharacterIterator(this);
     }
 
+    /**
+     * Get the position before the character at the given index. Recently
+     * requested positions are cached, so repeatedly asking for the same
+     * position usually returns the same instance.
+     */
     public SourcePosition characterPosition(int characterIndex) {
-        return new SourcePosition(this, characterIndex);
+        var positionCache = this.positionCache;
+        if (positionCache == null) {
+            positionCache = new SourcePosition[POSITION_CACHE_SIZE];
+            this.positionCache = positionCache;
+        }
+
+        var cacheIndex = characterIndex & (POSITION_CACHE_SIZE - 1);
+        var position = positionCache[cacheIndex];
+        if (position == null || position.characterIndex() != characterIndex) {
+            position = new SourcePosition(this, characterIndex);
+            positionCache[cacheIndex] = position;
+        }
+
+        return position;
+    }
+
+    public SourceRange sourceRange(int startCharacterIndex, int endCharacterIndex) {
+        return new SourceRange(
+            this,
+            characterPosition(startCharacterIndex),
+            characterPosition(endCharacterIndex)
+        );
+    }
+
+    public SourceRange sourceRange(long packedRange) {
+        return sourceRange(
+            SourceRange.packedStartCharacterIndex(packedRange),
+            SourceRange.packedEndCharacterIndex(packedRange)
+        );
     }
 
     Optional<ParentSourceText> parentSourceText() {
@@ -0,0 +1,265 @@
+package org.zwobble.sourcetext;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A cache of source texts, so that loading the same file or contents again
+ * returns the same source text. Since source texts are compared by identity,
+ * positions and ranges from earlier loads remain equal to those from later
+ * loads.
+ * <p>
+ * The most recently used source texts are held strongly, up to a budget of
+ * bytes. Other source texts are held softly, and their line indices are
+ * discarded, so the garbage collector can reclaim them when memory is low.
+ * Each source text always keeps its own contents, so a source text is only
+ * reclaimed once nothing else refers to it, and a source text returned by
+ * the cache can always be read, even after the file it was loaded from has
+ * changed. Once a source text has been reclaimed, it's removed from the
+ * cache, and loading it again creates a new source text.
+ * <p>
+ * The cache can be used from multiple threads. Files are read and decoded,
+ * and contents are hashed, without holding the lock on the cache, so a slow
+ * load doesn't block other threads. If multiple threads load the same file or
+ * contents at once, they all get the same source text.
+ */
+public final class SourceTextCache {
+    public static SourceTextCache create(long maxByteSize) {
+        if (maxByteSize < 0) {
+            throw new IllegalArgumentException(String.format(
+                "Maximum byte size %s not in range",
+                maxByteSize
+            ));
+        }
+
+        return new SourceTextCache(maxByteSize);
+    }
+
+    private record PathKey(Path path, Charset charset) {
+    }
+
+    private record NameKey(String name) {
+    }
+
+    private record FileVersion(FileTime lastModifiedTime, long size) {
+    }
+
+    private record ContentVersion(int length, long hash) {
+    }
+
+    private static final class Entry extends SoftReference<SourceText> {
+        private final Object key;
+        private final long byteSize;
+        private final Object version;
+
+        private Entry(
+            SourceText sourceText,
+            Object key,
+            long byteSize,
+            Object version,
+            ReferenceQueue<SourceText> queue
+        ) {
+            super(sourceText, queue);
+            this.key = key;
+            this.byteSize = byteSize;
+            this.version = version;
+        }
+    }
+
+    private final long maxByteSize;
+    private final Map<Object, Entry> entries = new HashMap<>();
+    private final ReferenceQueue<SourceText> reclaimedEntries = new ReferenceQueue<>();
+    // The source texts that are held strongly, from least to most recently
+    // used.
+    private final LinkedHashMap<Object, SourceText> heldSourceTexts = new LinkedHashMap<>();
+    private long heldByteSize = 0;
+
+    private SourceTextCache(long maxByteSize) {
+        this.maxByteSize = maxByteSize;
+    }
+
+    public SourceText get(Path path) throws IOException {
+        return get(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the source text for a file. If the file has the same modification
+     * time and size as when it was last loaded, then the same source text is
+     * returned. Otherwise, the file is loaded into a new source text.
+     */
+    public SourceText get(Path path, Charset charset) throws IOException {
+        var key = new PathKey(path, charset);
+        var version = fileVersion(path);
+
+        var sourceText = cached(key, version, cachedSourceText -> true);
+        if (sourceText != null) {
+            return sourceText;
+        }
+
+        // Files are read rather than memory-mapped, so that changes to the
+        // file don't change source texts that have already been returned.
+        sourceText = SourceText.fromByteBuffer(
+            path.toString(),
+            ByteBuffer.wrap(Files.readAllBytes(path)),
+            charset
+        );
+        return add(key, sourceText, version.size, version, cachedSourceText -> true);
+    }
+
+    /**
+     * Get the source text for the given name and contents. If the contents
+     * are the same as when the name was last used, then the same source text
+     * is returned. Otherwise, a new source text is created.
+     */
+    public SourceText get(String name, String contents) {
+        var key = new NameKey(name);
+        var version = new ContentVersion(contents.length(), contentHash(contents));
+        Predicate<SourceText> hasContents = cachedSourceText ->
+            cachedSourceText.storage().regionMatches(0, contents);
+
+        var sourceText = cached(key, version, hasContents);
+        if (sourceText != null) {
+            return sourceText;
+        }
+
+        sourceText = SourceText.fromString(name, contents);
+        return add(key, sourceText, (long) contents.length() * Character.BYTES, version, hasContents);
+    }
+
+    /**
+     * The number of source texts in the cache, including those that are only
+     * held softly and haven't been reclaimed.
+     */
+    public synchronized int size() {
+        removeReclaimedEntries();
+        return this.entries.size();
+    }
+
+    /**
+     * The approximate number of bytes of the source texts that are held
+     * strongly.
+     */
+    public synchronized long byteSize() {
+        return this.heldByteSize;
+    }
+
+    /**
+     * Get the cached source text for the key and version, if any. The lock is
+     * only held to look up and hold the source text, so that checking its
+     * contents doesn't block other threads.
+     */
+    private SourceText cached(Object key, Object version, Predicate<SourceText> hasContents) {
+        Entry entry;
+        SourceText sourceText;
+        synchronized (this) {
+            entry = lookUp(key, version);
+            sourceText = entry == null ? null : entry.get();
+        }
+
+        if (sourceText == null || !hasContents.test(sourceText)) {
+            return null;
+        }
+
+        synchronized (this) {
+            // Another thread may have replaced the entry in the meantime, in
+            // which case the new entry is checked when adding.
+            if (this.entries.get(key) != entry) {
+                return null;
+            }
+            hold(entry, sourceText);
+            return sourceText;
+        }
+    }
+
+    /**
+     * Add a source text that was loaded without holding the lock, unless
+     * another thread added the same contents in the meantime, in which case
+     * the existing source text is returned instead.
+     */
+    private synchronized SourceText add(
+        Object key,
+        SourceText sourceText,
+        long byteSize,
+        Object version,
+        Predicate<SourceText> hasContents
+    ) {
+        var previousEntry = lookUp(key, version);
+        var previousSourceText = previousEntry == null ? null : previousEntry.get();
+        if (previousSourceText != null && hasContents.test(previousSourceText)) {
+            hold(previousEntry, previousSourceText);
+            return previousSourceText;
+        }
+
+        previousEntry = this.entries.get(key);
+        if (previousEntry != null && this.heldSourceTexts.remove(key) != null) {
+            this.heldByteSize -= previousEntry.byteSize;
+        }
+
+        var entry = new Entry(sourceText, key, byteSize, version, this.reclaimedEntries);
+        this.entries.put(key, entry);
+        hold(entry, sourceText);
+        return sourceText;
+    }
+
+    private Entry lookUp(Object key, Object version) {
+        removeReclaimedEntries();
+
+        var entry = this.entries.get(key);
+        return entry == null || !entry.version.equals(version) ? null : entry;
+    }
+
+    private void hold(Entry entry, SourceText sourceText) {
+        if (this.heldSourceTexts.remove(entry.key) == null) {
+            this.heldByteSize += entry.byteSize;
+        }
+        this.heldSourceTexts.put(entry.key, sourceText);
+        evict();
+    }
+
+    private void evict() {
+        var iterator = this.heldSourceTexts.entrySet().iterator();
+        while (this.heldByteSize > this.maxByteSize && iterator.hasNext()) {
+            var heldSourceText = iterator.next();
+            iterator.remove();
+            heldSourceText.getValue().discardIndices();
+            this.heldByteSize -= this.entries.get(heldSourceText.getKey()).byteSize;
+        }
+    }
+
+    private void removeReclaimedEntries() {
+        Reference<? extends SourceText> reference;
+        while ((reference = this.reclaimedEntries.poll()) != null) {
+            var entry = (Entry) reference;
+            this.entries.remove(entry.key, entry);
+        }
+    }
+
+    private static FileVersion fileVersion(Path path) throws IOException {
+        return new FileVersion(Files.getLastModifiedTime(path), Files.size(path));
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the characters, so that different contents
+     * are very unlikely to have the same hash.
+     */
+    private static long contentHash(String contents) {
+        var hash = 0xcbf29ce484222325L;
+        for (var index = 0; index < contents.length(); index++) {
+            hash ^= contents.charAt(index);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
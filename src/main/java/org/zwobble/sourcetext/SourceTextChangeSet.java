@@ -0,0 +1,258 @@
+package org.zwobble.sourcetext;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The regions that changed between an old source text and a new source text,
+ * allowing ranges in the old source text to be rebased onto the new source
+ * text. Ranges that overlap a changed region are invalidated, while ranges
+ * that lie entirely outside the changed regions are shifted.
+ * <p>
+ * Ranges never grow to include inserted text: a range that starts where text
+ * was inserted starts after the insertion, and a range that ends where text was
+ * inserted ends before the insertion.
+ */
+public class SourceTextChangeSet {
+    public static SourceTextChangeSet of(SourceTextEdit edit) {
+        return new SourceTextChangeSet(
+            edit.oldSourceText(),
+            edit.newSourceText(),
+            new int[] {edit.startCharacterIndex()},
+            new int[] {edit.oldEndCharacterIndex()},
+            new int[] {edit.startCharacterIndex()},
+            new int[] {edit.newEndCharacterIndex()}
+        );
+    }
+
+    /**
+     * Find the changed region between two source texts by skipping their
+     * common prefix and suffix.
+     */
+    public static SourceTextChangeSet between(
+        SourceText oldSourceText,
+        SourceText newSourceText
+    ) {
+        var oldLength = oldSourceText.characterLength();
+        var newLength = newSourceText.characterLength();
+        var maxCommonLength = Math.min(oldLength, newLength);
+
+        var prefixLength = 0;
+        while (
+            prefixLength < maxCommonLength &&
+                oldSourceText.getCharacter(prefixLength) == newSourceText.getCharacter(prefixLength)
+        ) {
+            prefixLength++;
+        }
+
+        if (prefixLength == oldLength && prefixLength == newLength) {
+            return new SourceTextChangeSet(
+                oldSourceText,
+                newSourceText,
+                new int[0],
+                new int[0],
+                new int[0],
+                new int[0]
+            );
+        }
+
+        var suffixLength = 0;
+        while (
+            prefixLength + suffixLength < maxCommonLength &&
+                oldSourceText.getCharacter(oldLength - suffixLength - 1) ==
+                    newSourceText.getCharacter(newLength - suffixLength - 1)
+        ) {
+            suffixLength++;
+        }
+
+        return new SourceTextChangeSet(
+            oldSourceText,
+            newSourceText,
+            new int[] {prefixLength},
+            new int[] {oldLength - suffixLength},
+            new int[] {prefixLength},
+            new int[] {newLength - suffixLength}
+        );
+    }
+
+    private final SourceText oldSourceText;
+    private final SourceText newSourceText;
+    // The changed regions, sorted and neither overlapping nor touching.
+    private final int[] oldStarts;
+    private final int[] oldEnds;
+    private final int[] newStarts;
+    private final int[] newEnds;
+
+    private SourceTextChangeSet(
+        SourceText oldSourceText,
+        SourceText newSourceText,
+        int[] oldStarts,
+        int[] oldEnds,
+        int[] newStarts,
+        int[] newEnds
+    ) {
+        this.oldSourceText = oldSourceText;
+        this.newSourceText = newSourceText;
+        this.oldStarts = oldStarts;
+        this.oldEnds = oldEnds;
+        this.newStarts = newStarts;
+        this.newEnds = newEnds;
+    }
+
+    public SourceText oldSourceText() {
+        return this.oldSourceText;
+    }
+
+    public SourceText newSourceText() {
+        return this.newSourceText;
+    }
+
+    public int regionCount() {
+        return this.oldStarts.length;
+    }
+
+    /**
+     * Combine this change set with an edit of the new source text of this
+     * change set, giving a change set from the old source text of this change
+     * set to the new source text of the edit.
+     */
+    public SourceTextChangeSet andThen(SourceTextEdit edit) {
+        if (!edit.oldSourceText().equals(this.newSourceText)) {
+            throw new IllegalArgumentException(
+                "Edit must be of the new source text of the change set"
+            );
+        }
+
+        var editStart = edit.startCharacterIndex();
+        var editEnd = edit.oldEndCharacterIndex();
+        var delta = edit.newEndCharacterIndex() - editEnd;
+        var regionCount = this.oldStarts.length;
+
+        // Regions that overlap or touch the edit are merged with it.
+        var first = 0;
+        while (first < regionCount && this.newEnds[first] < editStart) {
+            first++;
+        }
+        var last = first;
+        while (last < regionCount && this.newStarts[last] <= editEnd) {
+            last++;
+        }
+        var mergedCount = last - first;
+
+        var deltaBefore = first == 0 ? 0 : this.newEnds[first - 1] - this.oldEnds[first - 1];
+        int mergedOldStart;
+        int mergedOldEnd;
+        int mergedNewStart;
+        int mergedNewEnd;
+        if (mergedCount == 0) {
+            mergedOldStart = editStart - deltaBefore;
+            mergedOldEnd = editEnd - deltaBefore;
+            mergedNewStart = editStart;
+            mergedNewEnd = editEnd + delta;
+        } else {
+            mergedOldStart = editStart < this.newStarts[first]
+                ? editStart - deltaBefore
+                : this.oldStarts[first];
+            mergedOldEnd = editEnd > this.newEnds[last - 1]
+                ? editEnd - (this.newEnds[last - 1] - this.oldEnds[last - 1])
+                : this.oldEnds[last - 1];
+            mergedNewStart = Math.min(editStart, this.newStarts[first]);
+            mergedNewEnd = Math.max(editEnd, this.newEnds[last - 1]) + delta;
+        }
+
+        var newRegionCount = regionCount - mergedCount + 1;
+        var oldStarts = new int[newRegionCount];
+        var oldEnds = new int[newRegionCount];
+        var newStarts = new int[newRegionCount];
+        var newEnds = new int[newRegionCount];
+
+        System.arraycopy(this.oldStarts, 0, oldStarts, 0, first);
+        System.arraycopy(this.oldEnds, 0, oldEnds, 0, first);
+        System.arraycopy(this.newStarts, 0, newStarts, 0, first);
+        System.arraycopy(this.newEnds, 0, newEnds, 0, first);
+
+        oldStarts[first] = mergedOldStart;
+        oldEnds[first] = mergedOldEnd;
+        newStarts[first] = mergedNewStart;
+        newEnds[first] = mergedNewEnd;
+
+        for (var index = last; index < regionCount; index++) {
+            var newIndex = index - mergedCount + 1;
+            oldStarts[newIndex] = this.oldStarts[index];
+            oldEnds[newIndex] = this.oldEnds[index];
+            newStarts[newIndex] = this.newStarts[index] + delta;
+            newEnds[newIndex] = this.newEnds[index] + delta;
+        }
+
+        return new SourceTextChangeSet(
+            this.oldSourceText,
+            edit.newSourceText(),
+            oldStarts,
+            oldEnds,
+            newStarts,
+            newEnds
+        );
+    }
+
+    /**
+     * Rebase a range in the old source text onto the new source text, or
+     * return empty if the range overlaps a changed region.
+     */
+    public Optional<SourceRange> rebase(SourceRange sourceRange) {
+        return Optional.ofNullable(rebaseOrNull(sourceRange));
+    }
+
+    /**
+     * Rebase many ranges in the old source text onto the new source text.
+     * Each element of the result is the rebased range, or null if the range
+     * overlaps a changed region.
+     */
+    public SourceRange[] rebase(SourceRange[] sourceRanges) {
+        var result = new SourceRange[sourceRanges.length];
+        for (var index = 0; index < sourceRanges.length; index++) {
+            result[index] = rebaseOrNull(sourceRanges[index]);
+        }
+        return result;
+    }
+
+    private SourceRange rebaseOrNull(SourceRange sourceRange) {
+        if (!sourceRange.sourceText().equals(this.oldSourceText)) {
+            throw new IllegalArgumentException(
+                "Source range must be in the old source text"
+            );
+        }
+
+        var start = sourceRange.start().characterIndex();
+        var end = sourceRange.end().characterIndex();
+
+        // Since regions are sorted and don't overlap, only the last region
+        // starting before the end of the range can overlap the range.
+        var regionIndex = lastRegionStartingBefore(end);
+        if (regionIndex >= 0 && start < this.oldEnds[regionIndex]) {
+            return null;
+        }
+
+        var rebasedEnd = rebaseCharacterIndex(end, lastRegionStartingBefore(end));
+        var rebasedStart = start == end
+            ? rebasedEnd
+            : rebaseCharacterIndex(start, lastRegionStartingAtOrBefore(start));
+
+        return this.newSourceText.sourceRange(rebasedStart, rebasedEnd);
+    }
+
+    private int rebaseCharacterIndex(int characterIndex, int regionIndex) {
+        return regionIndex < 0
+            ? characterIndex
+            : characterIndex + this.newEnds[regionIndex] - this.oldEnds[regionIndex];
+    }
+
+    private int lastRegionStartingBefore(int characterIndex) {
+        var index = Arrays.binarySearch(this.oldStarts, characterIndex);
+        return index >= 0 ? index - 1 : -index - 2;
+    }
+
+    private int lastRegionStartingAtOrBefore(int characterIndex) {
+        var index = Arrays.binarySearch(this.oldStarts, characterIndex);
+        return index >= 0 ? index : -index - 2;
+    }
+}
@@ -0,0 +1,110 @@
+package org.zwobble.sourcetext;
+
+/**
+ * The result of replacing a range of one source text to produce a new source
+ * text. Positions and ranges in the old source text can be rebased onto the
+ * new source text.
+ */
+public class SourceTextEdit {
+    private final SourceText oldSourceText;
+    private final SourceText newSourceText;
+    private final int startCharacterIndex;
+    private final int oldEndCharacterIndex;
+    private final int newEndCharacterIndex;
+
+    SourceTextEdit(
+        SourceText oldSourceText,
+        SourceText newSourceText,
+        int startCharacterIndex,
+        int oldEndCharacterIndex,
+        int newEndCharacterIndex
+    ) {
+        this.oldSourceText = oldSourceText;
+        this.newSourceText = newSourceText;
+        this.startCharacterIndex = startCharacterIndex;
+        this.oldEndCharacterIndex = oldEndCharacterIndex;
+        this.newEndCharacterIndex = newEndCharacterIndex;
+    }
+
+    public SourceText oldSourceText() {
+        return this.oldSourceText;
+    }
+
+    public SourceText newSourceText() {
+        return this.newSourceText;
+    }
+
+    /**
+     * The range in the old source text that was replaced.
+     */
+    public SourceRange oldSourceRange() {
+        return this.oldSourceText.sourceRange(
+            this.startCharacterIndex,
+            this.oldEndCharacterIndex
+        );
+    }
+
+    /**
+     * The range in the new source text of the replacement.
+     */
+    public SourceRange newSourceRange() {
+        return this.newSourceText.sourceRange(
+            this.startCharacterIndex,
+            this.newEndCharacterIndex
+        );
+    }
+
+    /**
+     * Find the position in the new source text corresponding to a position in
+     * the old source text. Positions before the replaced range, including the
+     * start of the replaced range, are unchanged. Positions after the replaced
+     * range are shifted by the change in length. Positions within the replaced
+     * range are moved to the end of the replacement.
+     */
+    public SourcePosition rebase(SourcePosition position) {
+        if (!position.sourceText().equals(this.oldSourceText)) {
+            throw new IllegalArgumentException(
+                "Source position must be in the old source text"
+            );
+        }
+
+        return this.newSourceText.characterPosition(
+            rebaseCharacterIndex(position.characterIndex())
+        );
+    }
+
+    public SourceRange rebase(SourceRange sourceRange) {
+        if (!sourceRange.sourceText().equals(this.oldSourceText)) {
+            throw new IllegalArgumentException(
+                "Source range must be in the old source text"
+            );
+        }
+
+        return this.newSourceText.sourceRange(
+            rebaseCharacterIndex(sourceRange.start().characterIndex()),
+            rebaseCharacterIndex(sourceRange.end().characterIndex())
+        );
+    }
+
+    int startCharacterIndex() {
+        return this.startCharacterIndex;
+    }
+
+    int oldEndCharacterIndex() {
+        return this.oldEndCharacterIndex;
+    }
+
+    int newEndCharacterIndex() {
+        return this.newEndCharacterIndex;
+    }
+
+    private int rebaseCharacterIndex(int characterIndex) {
+        if (characterIndex <= this.startCharacterIndex) {
+            return characterIndex;
+        } else if (characterIndex < this.oldEndCharacterIndex) {
+            return this.newEndCharacterIndex;
+        } else {
+            return characterIndex - this.oldEndCharacterIndex + this.newEndCharacterIndex;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.zwobble.sourcetext;
+
+/**
+ * The characters of a source text. Implementations must not copy the
+ * underlying characters unless unavoidable.
+ */
+interface SourceTextStorage {
+    int length();
+
+    char charAt(int index);
+
+    CharSequence charSequence();
+
+    CharSequence charSequence(int startIndex, int endIndex);
+
+    /**
+     * Load characters until at least the given number of characters have
+     * been loaded, or all characters have been loaded, and return the number
+     * of loaded characters. Storage that is always fully loaded returns its
+     * length.
+     */
+    default int load(int length) {
+        return length();
+    }
+
+    /**
+     * Allow the characters before the given index to be discarded. Storage
+     * that is always fully loaded keeps all of its characters.
+     */
+    default void releaseBefore(int index) {
+    }
+
+    default void appendTo(StringBuilder builder, int startIndex, int endIndex) {
+        for (var index = startIndex; index < endIndex; index++) {
+            builder.append(charAt(index));
+        }
+    }
+
+    default void getChars(int startIndex, int endIndex, char[] destination, int destinationIndex) {
+        for (var index = startIndex; index < endIndex; index++) {
+            destination[destinationIndex++] = charAt(index);
+        }
+    }
+
+    /**
+     * The hash code of the characters from start to end, which is the same as
+     * the hash code of a string with those characters.
+     */
+    default int contentHashCode(int startIndex, int endIndex) {
+        var hashCode = 0;
+        for (var index = startIndex; index < endIndex; index++) {
+            hashCode = 31 * hashCode + charAt(index);
+        }
+        return hashCode;
+    }
+
+    default int indexOf(char character, int fromIndex) {
+        var length = length();
+        for (var index = Math.max(fromIndex, 0); index < length; index++) {
+            if (charAt(index) == character) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    default int indexOf(CharSequence sequence, int fromIndex) {
+        if (sequence.isEmpty()) {
+            var index = Math.max(fromIndex, 0);
+            return Math.min(index, load(index));
+        }
+
+        var first = sequence.charAt(0);
+        var index = indexOf(first, fromIndex);
+        while (index != -1) {
+            if (load(index + sequence.length()) < index + sequence.length()) {
+                return -1;
+            }
+            if (regionMatches(index, sequence)) {
+                return index;
+            }
+            index = indexOf(first, index + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether the characters starting at the given index match the
+     * sequence. The caller must ensure that there are enough characters.
+     */
+    default boolean regionMatches(int index, CharSequence sequence) {
+        var length = sequence.length();
+        for (var offset = 0; offset < length; offset++) {
+            if (charAt(index + offset) != sequence.charAt(offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    default boolean containsSurrogates() {
+        var length = length();
+        for (var index = 0; index < length; index++) {
+            if (Character.isSurrogate(charAt(index))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+package org.zwobble.sourcetext;
+
+/**
+ * A view of a range of characters in storage that doesn't copy the
+ * characters.
+ */
+final class StorageCharSequence implements CharSequence {
+    static StorageCharSequence of(
+        SourceTextStorage storage,
+        int startIndex,
+        int endIndex
+    ) {
+        if (startIndex < 0 || startIndex > endIndex || endIndex > storage.load(endIndex)) {
+            throw new IndexOutOfBoundsException(String.format(
+                "Range [%s, %s) out of bounds for length %s",
+                startIndex,
+                endIndex,
+                storage.length()
+            ));
+        }
+
+        return new StorageCharSequence(storage, startIndex, endIndex);
+    }
+
+    private final SourceTextStorage storage;
+    private final int startIndex;
+    private final int endIndex;
+
+    private StorageCharSequence(
+        SourceTextStorage storage,
+        int startIndex,
+        int endIndex
+    ) {
+        this.storage = storage;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+    }
+
+    @Override
+    public int length() {
+        return this.endIndex - this.startIndex;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        return this.storage.charAt(this.startIndex + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int startIndex, int endIndex) {
+        if (startIndex < 0 || endIndex > length() || startIndex > endIndex) {
+            throw new IndexOutOfBoundsException(String.format(
+                "Range [%s, %s) out of bounds for length %s",
+                startIndex,
+                endIndex,
+                length()
+            ));
+        }
+
+        return new StorageCharSequence(
+            this.storage,
+            this.startIndex + startIndex,
+            this.startIndex + endIndex
+        );
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder(length());
+        this.storage.appendTo(builder, this.startIndex, this.endIndex);
+        return builder.toString();
+    }
+}
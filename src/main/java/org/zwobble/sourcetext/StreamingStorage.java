@@ -0,0 +1,211 @@
+package org.zwobble.sourcetext;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Storage that reads characters from a reader as they're needed, rather than
+ * reading all of the characters up front. The characters are held in
+ * fixed-size chunks, and chunks before the low-water mark set by
+ * {@link #releaseBefore(int)} are discarded, so a consumer that moves forward
+ * through the text only holds a bounded window of characters in memory.
+ * <p>
+ * The line index is updated as characters are read, so the line and column of
+ * any character that has been read can be found even after that character has
+ * been released.
+ */
+final class StreamingStorage implements SourceTextStorage {
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_LENGTH = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_LENGTH - 1;
+
+    private final Reader reader;
+    private final LineTerminators lineTerminators;
+    private final LineIndex lineIndex = LineIndex.incremental();
+    // The chunks that have not been released, the first chunk being chunk
+    // number releasedChunkCount.
+    private char[][] chunks = new char[4][];
+    private int chunkCount = 0;
+    private int releasedChunkCount = 0;
+    private int loadedLength = 0;
+    private boolean isFullyLoaded = false;
+    // Whether the last character read is a '\r' that ends a line unless the
+    // next character is a '\n'.
+    private boolean isCarriageReturnPending = false;
+
+    StreamingStorage(Reader reader, LineTerminators lineTerminators) {
+        this.reader = reader;
+        this.lineTerminators = lineTerminators;
+    }
+
+    LineIndex lineIndex() {
+        return this.lineIndex;
+    }
+
+    /**
+     * Reading the length of streaming storage requires reading all remaining
+     * characters.
+     */
+    @Override
+    public int length() {
+        return load(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= load(index + 1)) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        return chunk(index)[index & CHUNK_MASK];
+    }
+
+    @Override
+    public CharSequence charSequence() {
+        return StorageCharSequence.of(this, 0, length());
+    }
+
+    @Override
+    public CharSequence charSequence(int startIndex, int endIndex) {
+        return StorageCharSequence.of(this, startIndex, endIndex);
+    }
+
+    @Override
+    public int load(int length) {
+        // Characters after a trailing '\r' are read so that any line starting
+        // after the loaded characters is in the line index.
+        while ((this.loadedLength < length || this.isCarriageReturnPending) && !this.isFullyLoaded) {
+            read();
+        }
+        return this.loadedLength;
+    }
+
+    /**
+     * Discard the chunks that only contain characters before the given index.
+     * Since whole chunks are discarded, some characters before the given index
+     * may still be readable.
+     */
+    @Override
+    public void releaseBefore(int index) {
+        var releasedChunkCount = Math.min(index, this.loadedLength) >>> CHUNK_BITS;
+        var releaseCount = releasedChunkCount - this.releasedChunkCount;
+        if (releaseCount <= 0) {
+            return;
+        }
+
+        this.chunkCount -= releaseCount;
+        System.arraycopy(this.chunks, releaseCount, this.chunks, 0, this.chunkCount);
+        Arrays.fill(this.chunks, this.chunkCount, this.chunkCount + releaseCount, null);
+        this.releasedChunkCount = releasedChunkCount;
+    }
+
+    @Override
+    public void appendTo(StringBuilder builder, int startIndex, int endIndex) {
+        var index = startIndex;
+        while (index < endIndex) {
+            var chunk = chunk(index);
+            var offset = index & CHUNK_MASK;
+            var length = Math.min(endIndex - index, CHUNK_LENGTH - offset);
+            builder.append(chunk, offset, length);
+            index += length;
+        }
+    }
+
+    @Override
+    public void getChars(int startIndex, int endIndex, char[] destination, int destinationIndex) {
+        var index = startIndex;
+        while (index < endIndex) {
+            var chunk = chunk(index);
+            var offset = index & CHUNK_MASK;
+            var length = Math.min(endIndex - index, CHUNK_LENGTH - offset);
+            System.arraycopy(chunk, offset, destination, destinationIndex, length);
+            destinationIndex += length;
+            index += length;
+        }
+    }
+
+    @Override
+    public int indexOf(char character, int fromIndex) {
+        var index = Math.max(fromIndex, 0);
+        while (index < load(index + 1)) {
+            var chunk = chunk(index);
+            var end = Math.min(this.loadedLength, (index | CHUNK_MASK) + 1);
+            for (; index < end; index++) {
+                if (chunk[index & CHUNK_MASK] == character) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checking for surrogates would require reading all remaining characters,
+     * so streaming storage is always assumed to contain surrogates.
+     */
+    @Override
+    public boolean containsSurrogates() {
+        return true;
+    }
+
+    private char[] chunk(int index) {
+        var chunkNumber = index >>> CHUNK_BITS;
+        if (chunkNumber < this.releasedChunkCount) {
+            throw new IllegalStateException(String.format(
+                "Character index %s has been released",
+                index
+            ));
+        }
+        return this.chunks[chunkNumber - this.releasedChunkCount];
+    }
+
+    private void read() {
+        var offset = this.loadedLength & CHUNK_MASK;
+        if (offset == 0 && (this.loadedLength >>> CHUNK_BITS) - this.releasedChunkCount == this.chunkCount) {
+            if (this.chunkCount == this.chunks.length) {
+                this.chunks = Arrays.copyOf(this.chunks, this.chunkCount * 2);
+            }
+            this.chunks[this.chunkCount++] = new char[CHUNK_LENGTH];
+        }
+        var chunk = this.chunks[this.chunkCount - 1];
+
+        int readLength;
+        try {
+            readLength = this.reader.read(chunk, offset, CHUNK_LENGTH - offset);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        if (readLength == -1) {
+            if (this.isCarriageReturnPending) {
+                this.lineIndex.addLineStart(this.loadedLength);
+                this.isCarriageReturnPending = false;
+            }
+            this.isFullyLoaded = true;
+            return;
+        }
+
+        var end = offset + readLength;
+        if (this.isCarriageReturnPending) {
+            if (chunk[offset] != '\n') {
+                this.lineIndex.addLineStart(this.loadedLength);
+            }
+            this.isCarriageReturnPending = false;
+        }
+        for (var index = offset; index < end; index++) {
+            var character = chunk[index];
+            if (this.lineTerminators.isTerminatorCharacter(character)) {
+                if (character != '\r') {
+                    this.lineIndex.addLineStart(this.loadedLength + index - offset + 1);
+                } else if (index + 1 == end) {
+                    this.isCarriageReturnPending = true;
+                } else if (chunk[index + 1] != '\n') {
+                    this.lineIndex.addLineStart(this.loadedLength + index - offset + 1);
+                }
+            }
+        }
+        this.loadedLength += readLength;
+    }
+}
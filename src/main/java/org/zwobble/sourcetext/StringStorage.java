@@ -0,0 +1,68 @@
+package org.zwobble.sourcetext;
+
+import java.nio.CharBuffer;
+
+final class StringStorage implements SourceTextStorage {
+    private final String string;
+    private final CharBuffer charBuffer;
+
+    StringStorage(String string) {
+        this.string = string;
+        this.charBuffer = CharBuffer.wrap(string);
+    }
+
+    @Override
+    public int length() {
+        return this.string.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return this.string.charAt(index);
+    }
+
+    @Override
+    public CharSequence charSequence() {
+        // The buffer is duplicated so that callers can't change the position
+        // of the shared buffer.
+        return this.charBuffer.duplicate();
+    }
+
+    @Override
+    public CharSequence charSequence(int startIndex, int endIndex) {
+        return this.charBuffer.subSequence(startIndex, endIndex);
+    }
+
+    @Override
+    public void appendTo(StringBuilder builder, int startIndex, int endIndex) {
+        builder.append(this.string, startIndex, endIndex);
+    }
+
+    @Override
+    public void getChars(int startIndex, int endIndex, char[] destination, int destinationIndex) {
+        this.string.getChars(startIndex, endIndex, destination, destinationIndex);
+    }
+
+    @Override
+    public int indexOf(char character, int fromIndex) {
+        return this.string.indexOf(character, fromIndex);
+    }
+
+    @Override
+    public int indexOf(CharSequence sequence, int fromIndex) {
+        if (sequence instanceof String string) {
+            return this.string.indexOf(string, fromIndex);
+        }
+
+        return SourceTextStorage.super.indexOf(sequence, fromIndex);
+    }
+
+    @Override
+    public boolean regionMatches(int index, CharSequence sequence) {
+        if (sequence instanceof String string) {
+            return this.string.startsWith(string, index);
+        }
+
+        return SourceTextStorage.super.regionMatches(index, sequence);
+    }
+}
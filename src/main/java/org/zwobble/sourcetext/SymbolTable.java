@@ -0,0 +1,44 @@
+package org.zwobble.sourcetext;
+
+/**
+ * Interns symbols, such as identifiers, as small integers. Each distinct
+ * sequence of characters is given the next unused symbol ID, starting from
+ * zero, and interning the same characters again returns the same symbol ID.
+ * <p>
+ * Ranges of source texts are interned by hashing and comparing their
+ * characters in place, so a string is only created the first time that a
+ * symbol is interned.
+ */
+public interface SymbolTable {
+    /**
+     * Create a symbol table that must not be used from multiple threads at
+     * once.
+     */
+    static SymbolTable create() {
+        return new OpenAddressingSymbolTable();
+    }
+
+    /**
+     * Create a symbol table that can be used from multiple threads at once,
+     * such as when lexing many files in parallel. As with other symbol
+     * tables, symbol IDs are dense, so every symbol ID is less than
+     * {@link #size()}.
+     */
+    static SymbolTable concurrent() {
+        return new ShardedSymbolTable();
+    }
+
+    int intern(SourceRange sourceRange);
+
+    int intern(CharSequence symbol);
+
+    /**
+     * Get the characters of a symbol from its ID.
+     */
+    String symbol(int symbolId);
+
+    /**
+     * The number of distinct symbols that have been interned.
+     */
+    int size();
+}
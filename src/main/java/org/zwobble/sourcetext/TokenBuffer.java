@@ -0,0 +1,148 @@
+package org.zwobble.sourcetext;
+
+import java.util.Arrays;
+
+/**
+ * The tokens of a single source text, stored as parallel arrays of kinds,
+ * start character indices and end character indices, rather than as an
+ * object per token. Ranges and character sequences are only created when
+ * asked for.
+ * <p>
+ * Kinds are ints chosen by the lexer, such as the ordinals of an enum.
+ * Tokens are identified by the order in which they were added, starting at 0.
+ */
+public final class TokenBuffer {
+    private static final int INITIAL_CAPACITY = 64;
+
+    public static TokenBuffer create(SourceText sourceText) {
+        return new TokenBuffer(sourceText);
+    }
+
+    private final SourceText sourceText;
+    private int[] kinds = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private TokenBuffer(SourceText sourceText) {
+        this.sourceText = sourceText;
+    }
+
+    public SourceText sourceText() {
+        return this.sourceText;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Add a token, returning the index of the token.
+     */
+    public int add(int kind, int startCharacterIndex, int endCharacterIndex) {
+        if (
+            startCharacterIndex < 0 ||
+                startCharacterIndex > endCharacterIndex ||
+                endCharacterIndex > this.sourceText.storage().load(endCharacterIndex)
+        ) {
+            throw new IllegalArgumentException(String.format(
+                "Character range %s to %s not in range",
+                startCharacterIndex,
+                endCharacterIndex
+            ));
+        }
+
+        if (this.size == this.kinds.length) {
+            var capacity = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.ends = Arrays.copyOf(this.ends, capacity);
+        }
+
+        var tokenIndex = this.size++;
+        this.kinds[tokenIndex] = kind;
+        this.starts[tokenIndex] = startCharacterIndex;
+        this.ends[tokenIndex] = endCharacterIndex;
+        return tokenIndex;
+    }
+
+    /**
+     * Add a token that ends at the current position of the iterator,
+     * returning the index of the token.
+     */
+    public int add(int kind, int startCharacterIndex, SourceCharacterIterator iterator) {
+        return add(kind, startCharacterIndex, iterator.characterIndex());
+    }
+
+    public int kind(int tokenIndex) {
+        checkTokenIndex(tokenIndex);
+        return this.kinds[tokenIndex];
+    }
+
+    public int startCharacterIndex(int tokenIndex) {
+        checkTokenIndex(tokenIndex);
+        return this.starts[tokenIndex];
+    }
+
+    public int endCharacterIndex(int tokenIndex) {
+        checkTokenIndex(tokenIndex);
+        return this.ends[tokenIndex];
+    }
+
+    public int characterLength(int tokenIndex) {
+        checkTokenIndex(tokenIndex);
+        return this.ends[tokenIndex] - this.starts[tokenIndex];
+    }
+
+    /**
+     * The range of the token packed as with {@link SourceRange#pack(int, int)}.
+     */
+    public long packedSourceRange(int tokenIndex) {
+        checkTokenIndex(tokenIndex);
+        return SourceRange.pack(this.starts[tokenIndex], this.ends[tokenIndex]);
+    }
+
+    public SourceRange sourceRange(int tokenIndex) {
+        checkTokenIndex(tokenIndex);
+        return this.sourceText.sourceRange(this.starts[tokenIndex], this.ends[tokenIndex]);
+    }
+
+    public CharSequence charSequence(int tokenIndex) {
+        checkTokenIndex(tokenIndex);
+        return this.sourceText.charSequence(this.starts[tokenIndex], this.ends[tokenIndex]);
+    }
+
+    /**
+     * Reset the view to the characters of the token, so that a single view
+     * can be used to read many tokens without allocating.
+     */
+    public SourceRangeView view(int tokenIndex, SourceRangeView view) {
+        checkTokenIndex(tokenIndex);
+        return view.reset(this.sourceText, this.starts[tokenIndex], this.ends[tokenIndex]);
+    }
+
+    public boolean contentEquals(int tokenIndex, CharSequence sequence) {
+        checkTokenIndex(tokenIndex);
+        var start = this.starts[tokenIndex];
+        return sequence.length() == this.ends[tokenIndex] - start &&
+            this.sourceText.storage().regionMatches(start, sequence);
+    }
+
+    /**
+     * Move the iterator to the start of the token, such as to lex the token
+     * again, without creating a position.
+     */
+    public void moveToStart(int tokenIndex, SourceCharacterIterator iterator) {
+        checkTokenIndex(tokenIndex);
+        iterator.characterIndex(this.starts[tokenIndex]);
+    }
+
+    private void checkTokenIndex(int tokenIndex) {
+        if (tokenIndex < 0 || tokenIndex >= this.size) {
+            throw new IllegalArgumentException(String.format(
+                "Token index %s not in range",
+                tokenIndex
+            ));
+        }
+    }
+}
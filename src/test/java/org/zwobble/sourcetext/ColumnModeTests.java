@@ -0,0 +1,147 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class ColumnModeTests {
+    @Test
+    public void utf16UnitsCountsEachCharacter() {
+        var sourceText = SourceText.fromString("<filename>", "x\n\t\uD835\uDC00\u4e16b");
+
+        var result = sourceText.columnIndex(7, ColumnMode.utf16Units());
+
+        assertThat(result, equalTo(5));
+    }
+
+    @Test
+    public void charactersOfCarriageReturnLineFeedAreSingleColumns() {
+        var sourceText = SourceText.fromString("<filename>", "a\tb\r\nc")
+            .withLineTerminators(LineTerminators.UNIVERSAL);
+
+        assertThat(sourceText.columnIndex(3, ColumnMode.tabExpanded(4)), equalTo(5));
+        assertThat(sourceText.columnIndex(4, ColumnMode.tabExpanded(4)), equalTo(6));
+        assertThat(sourceText.lineColumn(4, ColumnMode.tabExpanded(4)), equalTo(new SourceLineColumn(0, 6)));
+        assertThat(
+            sourceText.sourceRange(4, 5).describe(ColumnMode.tabExpanded(4)),
+            equalTo("<filename>:1:7\na\tb\n \t  ^")
+        );
+    }
+
+    @Test
+    public void codePointsCountsSurrogatePairsAsOneColumn() {
+        var sourceText = SourceText.fromString("<filename>", "x\n\t\uD835\uDC00\u4e16b");
+
+        var result = sourceText.columnIndex(7, ColumnMode.codePoints());
+
+        assertThat(result, equalTo(4));
+    }
+
+    @Test
+    public void tabExpandedMovesTabsToNextTabStop() {
+        var sourceText = SourceText.fromString("<filename>", "x\n\tab\tc\t");
+
+        assertThat(sourceText.columnIndex(3, ColumnMode.tabExpanded(4)), equalTo(4));
+        assertThat(sourceText.columnIndex(5, ColumnMode.tabExpanded(4)), equalTo(6));
+        assertThat(sourceText.columnIndex(6, ColumnMode.tabExpanded(4)), equalTo(8));
+        assertThat(sourceText.columnIndex(8, ColumnMode.tabExpanded(4)), equalTo(12));
+        assertThat(sourceText.columnIndex(8, ColumnMode.tabExpanded(8)), equalTo(24));
+    }
+
+    @Test
+    public void displayWidthCountsWideCharactersAsTwoColumns() {
+        var sourceText = SourceText.fromString("<filename>", "\u4e16\u754cx\uff21y");
+
+        assertThat(sourceText.columnIndex(2, ColumnMode.displayWidth(4)), equalTo(4));
+        assertThat(sourceText.columnIndex(4, ColumnMode.displayWidth(4)), equalTo(7));
+    }
+
+    @Test
+    public void displayWidthCountsCombiningMarksAsZeroColumns() {
+        var sourceText = SourceText.fromString("<filename>", "e\u0301x");
+
+        var result = sourceText.columnIndex(2, ColumnMode.displayWidth(4));
+
+        assertThat(result, equalTo(1));
+    }
+
+    @Test
+    public void displayWidthExpandsTabs() {
+        var sourceText = SourceText.fromString("<filename>", "\u4e16\tx");
+
+        var result = sourceText.columnIndex(2, ColumnMode.displayWidth(4));
+
+        assertThat(result, equalTo(4));
+    }
+
+    @Test
+    public void positionCanHaveLineAndColumnUsingColumnMode() {
+        var sourceText = SourceText.fromString("<filename>", "x\n\tab");
+
+        var result = sourceText.characterPosition(4).lineColumn(ColumnMode.tabExpanded(4));
+
+        assertThat(result, equalTo(new SourceLineColumn(1, 5)));
+    }
+
+    @Test
+    public void columnTablesAreCachedPerColumnMode() {
+        var sourceText = SourceText.fromString("<filename>", "\tab");
+
+        assertThat(sourceText.columnIndex(2, ColumnMode.tabExpanded(4)), equalTo(5));
+        assertThat(sourceText.columnIndex(2, ColumnMode.tabExpanded(2)), equalTo(3));
+        assertThat(sourceText.columnIndex(2, ColumnMode.tabExpanded(4)), equalTo(5));
+    }
+
+    @Test
+    public void whenTabWidthIsNotPositiveThenErrorIsThrown() {
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> ColumnMode.tabExpanded(0)
+        );
+
+        assertThat(error.getMessage(), equalTo("Tab width 0 not in range"));
+    }
+
+    @Test
+    public void describeCopiesTabsSoThatCaretsLineUp() {
+        var sourceText = SourceText.fromString("<filename>", "\tab\tcd");
+
+        var result = sourceText.sourceRange(5, 6).describe();
+
+        assertThat(result, equalTo("<filename>:1:6\n\tab\tcd\n\t  \t ^"));
+    }
+
+    @Test
+    public void describeUsesDisplayWidthSoThatCaretsLineUp() {
+        var sourceText = SourceText.fromString("<filename>", "\u4e16\u754cxy");
+
+        var result = sourceText.sourceRange(1, 3).describe();
+
+        assertThat(result, equalTo("<filename>:1:2\n\u4e16\u754cxy\n  ^^^"));
+    }
+
+    @Test
+    public void describeCanUseColumnModeForColumnNumber() {
+        var sourceText = SourceText.fromString("<filename>", "\tab");
+
+        var result = sourceText.sourceRange(2, 3).describe(ColumnMode.tabExpanded(4));
+
+        assertThat(result, equalTo("<filename>:1:6\n\tab\n\t ^"));
+    }
+
+    @Test
+    public void diagnosticRendererCanUseColumnMode() throws IOException {
+        var sourceText = SourceText.fromString("<filename>", "\u4e16\u754cxy");
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create()
+            .withColumnMode(ColumnMode.displayWidth(4))
+            .render(sourceText.sourceRange(2, 3), output);
+
+        assertThat(output.toString(), equalTo("<filename>:1:5\n\u4e16\u754cxy\n    ^\n"));
+    }
+}
@@ -0,0 +1,88 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class DerivedSourceTextBuilderTests {
+    @Test
+    public void textIsCopiedRangesAndInsertedText() {
+        var original = SourceText.fromString("<filename>", "abc /* x */ def");
+
+        var derived = SourceText.derivedBuilder(original)
+            .copy(original.sourceRange(0, 4))
+            .insert("/**/")
+            .copy(original.sourceRange(11, 15))
+            .build();
+
+        assertThat(derived.charSequence().toString(), equalTo("abc /**/ def"));
+        assertThat(derived.name(), equalTo("<filename>"));
+    }
+
+    @Test
+    public void positionsInCopiedRangesAreMappedToOriginal() {
+        var original = SourceText.fromString("<filename>", "abc\\\ndef");
+
+        var derived = SourceText.derivedBuilder(original)
+            .copy(0, 3)
+            .copy(5, 8)
+            .build();
+
+        assertThat(derived.characterPosition(4).toString(), equalTo("<filename>:2:2"));
+    }
+
+    @Test
+    public void positionsInInsertedTextAreMappedToGivenPosition() {
+        var original = SourceText.fromString("<filename>", "x = FOO;");
+
+        var derived = SourceText.derivedBuilder(original)
+            .copy(0, 4)
+            .insert("1 + 2", original.characterPosition(4))
+            .copy(7, 8)
+            .build();
+
+        assertThat(derived.charSequence().toString(), equalTo("x = 1 + 2;"));
+        assertThat(derived.characterPosition(8).toString(), equalTo("<filename>:1:5"));
+        assertThat(derived.characterPosition(9).toString(), equalTo("<filename>:1:8"));
+    }
+
+    @Test
+    public void characterLengthIsLengthOfTextSoFar() {
+        var original = SourceText.fromString("<filename>", "abcdef");
+
+        var builder = SourceText.derivedBuilder(original)
+            .copy(1, 3)
+            .insert("xyz");
+
+        assertThat(builder.characterLength(), equalTo(5));
+    }
+
+    @Test
+    public void whenRangeIsFromOtherSourceTextThenErrorIsThrown() {
+        var original = SourceText.fromString("<filename>", "abcdef");
+        var other = SourceText.fromString("<filename>", "abcdef");
+        var builder = SourceText.derivedBuilder(original);
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> builder.copy(other.sourceRange(0, 1))
+        );
+
+        assertThat(error.getMessage(), equalTo("Source range must be in the original source text"));
+    }
+
+    @Test
+    public void whenRangeIsBeyondEndThenErrorIsThrown() {
+        var original = SourceText.fromString("<filename>", "abcdef");
+        var builder = SourceText.derivedBuilder(original);
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> builder.copy(4, 7)
+        );
+
+        assertThat(error.getMessage(), equalTo("Character range 4 to 7 not in range"));
+    }
+}
@@ -0,0 +1,212 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class DiagnosticRendererTests {
+    private static final SourceText SOURCE_TEXT = SourceText.fromString(
+        "<filename>",
+        """
+            abcdef
+            ghijkl
+            mnopqr
+            stuvwx
+            """
+    );
+
+    @Test
+    public void singleLineRangeIsRenderedSameAsDescription() throws IOException {
+        var sourceRange = SOURCE_TEXT.sourceRange(9, 12);
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create().render(sourceRange, output);
+
+        assertThat(output.toString(), equalTo(sourceRange.describe() + "\n"));
+    }
+
+    @Test
+    public void multiLineRangeIsUnderlinedOnEachLine() throws IOException {
+        var sourceRange = SOURCE_TEXT.sourceRange(9, 16);
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create().render(sourceRange, output);
+
+        assertThat(output.toString(), equalTo("""
+            <filename>:2:3
+            ghijkl
+              ^^^^
+            mnopqr
+            ^^
+            """));
+    }
+
+    @Test
+    public void rangeEndingAtStartOfLineDoesNotUnderlineThatLine() throws IOException {
+        var sourceRange = SOURCE_TEXT.sourceRange(7, 14);
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create().render(sourceRange, output);
+
+        assertThat(output.toString(), equalTo("""
+            <filename>:2:1
+            ghijkl
+            ^^^^^^
+            """));
+    }
+
+    @Test
+    public void contextLinesAreIncludedBeforeAndAfterRange() throws IOException {
+        var sourceRange = SOURCE_TEXT.sourceRange(15, 17);
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create().withContextLines(1).render(sourceRange, output);
+
+        assertThat(output.toString(), equalTo("""
+            <filename>:3:2
+            ghijkl
+            mnopqr
+             ^^
+            stuvwx
+            """));
+    }
+
+    @Test
+    public void contextLinesStopAtStartAndEndOfSourceText() throws IOException {
+        var sourceText = SourceText.fromString("<filename>", "abc\ndef");
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create().withContextLines(2).render(sourceText.sourceRange(0, 1), output);
+
+        assertThat(output.toString(), equalTo("""
+            <filename>:1:1
+            abc
+            ^
+            def
+            """));
+    }
+
+    @Test
+    public void manyRangesAreRenderedInOrderOfPosition() throws IOException {
+        var output = new StringWriter();
+
+        DiagnosticRenderer.create().render(
+            List.of(
+                SOURCE_TEXT.sourceRange(22, 23),
+                SOURCE_TEXT.sourceRange(1, 2),
+                SOURCE_TEXT.sourceRange(8, 10)
+            ),
+            output
+        );
+
+        assertThat(output.toString(), equalTo("""
+            <filename>:1:2
+            abcdef
+             ^
+            <filename>:2:2
+            ghijkl
+             ^^
+            <filename>:4:2
+            stuvwx
+             ^
+            """));
+    }
+
+    @Test
+    public void manyRangesWithSameStartAreRenderedInOrderOfEnd() throws IOException {
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create().render(
+            List.of(
+                SOURCE_TEXT.sourceRange(1, 4),
+                SOURCE_TEXT.sourceRange(1, 2)
+            ),
+            output
+        );
+
+        assertThat(output.toString(), equalTo("""
+            <filename>:1:2
+            abcdef
+             ^
+            <filename>:1:2
+            abcdef
+             ^^^
+            """));
+    }
+
+    @Test
+    public void manyRangesAreGroupedBySourceText() throws IOException {
+        var otherSourceText = SourceText.fromString("<other>", "xyz");
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create().render(
+            List.of(
+                SOURCE_TEXT.sourceRange(8, 9),
+                otherSourceText.sourceRange(1, 2),
+                SOURCE_TEXT.sourceRange(1, 2)
+            ),
+            output
+        );
+
+        assertThat(output.toString(), equalTo("""
+            <filename>:1:2
+            abcdef
+             ^
+            <filename>:2:2
+            ghijkl
+             ^
+            <other>:1:2
+            xyz
+             ^
+            """));
+    }
+
+    @Test
+    public void rangesInDerivedSourceTextsAreRenderedInOriginalSourceText() throws IOException {
+        var original = SourceText.fromString("<filename>", "abc\ndef");
+        var derived = SourceText.derived(original, "DEF", index -> index + 4);
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create().render(derived.sourceRange(1, 2), output);
+
+        assertThat(output.toString(), equalTo("""
+            <filename>:2:2
+            def
+             ^
+            """));
+    }
+
+    @Test
+    public void rangesInSourceTextsDerivedInManyStagesAreRenderedInOriginalSourceText() throws IOException {
+        var original = SourceText.fromString("<filename>", "abc\ndef\nghi");
+        var intermediate = SourceText.derived(original, "def\nghi", index -> index + 4);
+        var derived = SourceText.derived(intermediate, "GHI", index -> index + 4);
+        var sourceRange = derived.sourceRange(1, 2);
+        var output = new StringBuilder();
+
+        DiagnosticRenderer.create().render(sourceRange, output);
+
+        assertThat(output.toString(), equalTo("""
+            <filename>:3:2
+            ghi
+             ^
+            """));
+        assertThat(output.toString(), equalTo(sourceRange.describe() + "\n"));
+    }
+
+    @Test
+    public void whenContextLineCountIsNegativeThenErrorIsThrown() {
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> DiagnosticRenderer.create().withContextLines(-1)
+        );
+
+        assertThat(error.getMessage(), equalTo("Context line count -1 not in range"));
+    }
+}
@@ -0,0 +1,129 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class SegmentedPositionMapperTests {
+    @Test
+    public void copiedSegmentsMapToCorrespondingOriginalPositions() {
+        // Original: "abc /* x */ def", derived: "abc  def"
+        var positionMapper = SegmentedPositionMapper.builder()
+            .copied(0, 4)
+            .copied(11, 4)
+            .build();
+
+        assertThat(mapAll(positionMapper, 8), equalTo(List.of(
+            0, 1, 2, 3, 11, 12, 13, 14, 15
+        )));
+    }
+
+    @Test
+    public void insertedSegmentsMapToSinglePoint() {
+        // Original: "a FOO b", derived: "a 1 + 2 b"
+        var positionMapper = SegmentedPositionMapper.builder()
+            .copied(0, 2)
+            .inserted(5, 2)
+            .copied(5, 2)
+            .build();
+
+        assertThat(mapAll(positionMapper, 9), equalTo(List.of(
+            0, 1, 2, 2, 2, 2, 2, 5, 6, 7
+        )));
+    }
+
+    @Test
+    public void insertedSegmentsMapToEndOfLastCopiedSegmentByDefault() {
+        var positionMapper = SegmentedPositionMapper.builder()
+            .copied(0, 2)
+            .inserted(2)
+            .copied(2, 1)
+            .build();
+
+        assertThat(mapAll(positionMapper, 5), equalTo(List.of(
+            0, 1, 2, 2, 2, 3
+        )));
+    }
+
+    @Test
+    public void contiguousCopiedSegmentsAreMerged() {
+        var positionMapper = SegmentedPositionMapper.builder()
+            .copied(0, 2)
+            .copied(2, 3)
+            .copied(5, 1)
+            .build();
+
+        assertThat(positionMapper.segmentCount(), equalTo(1));
+        assertThat(mapAll(positionMapper, 6), equalTo(List.of(0, 1, 2, 3, 4, 5, 6)));
+    }
+
+    @Test
+    public void composedMapperMapsLikeEachMapperInTurn() {
+        // Original: "ab/*c*/de\\\nfg"
+        var first = SegmentedPositionMapper.builder()
+            .copied(0, 2)
+            .copied(7, 2)
+            .inserted(1)
+            .copied(11, 2)
+            .build();
+        // Intermediate: "abde fg"
+        var second = SegmentedPositionMapper.builder()
+            .inserted(2, 0)
+            .copied(0, 3)
+            .copied(4, 3)
+            .inserted(1)
+            .build();
+        // Derived: "##abdfg;"
+
+        var composed = first.compose(second);
+
+        var expected = new ArrayList<Integer>();
+        for (var derivedCharacterIndex = 0; derivedCharacterIndex <= 8; derivedCharacterIndex++) {
+            expected.add(first.derivedCharacterIndexToOriginalCharacterIndex(
+                second.derivedCharacterIndexToOriginalCharacterIndex(derivedCharacterIndex)
+            ));
+        }
+        assertThat(mapAll(composed, 8), equalTo(expected));
+    }
+
+    @Test
+    public void derivingFromDerivedSourceTextWithSegmentedMappersMapsDirectlyToOriginal() {
+        var originalSourceText = SourceText.fromString("<filename>", "ab\ncd\\\nef");
+        var joinedSourceText = SourceText.derived(
+            originalSourceText,
+            "ab\ncdef",
+            SegmentedPositionMapper.builder()
+                .copied(0, 5)
+                .copied(7, 2)
+                .build()
+        );
+        var trimmedSourceText = SourceText.derived(
+            joinedSourceText,
+            "cdef",
+            SegmentedPositionMapper.builder()
+                .copied(3, 4)
+                .build()
+        );
+
+        var parentSourceText = trimmedSourceText.parentSourceText().get();
+        var position = trimmedSourceText.characterPosition(3);
+
+        assertThat(parentSourceText.sourceText() == originalSourceText, equalTo(true));
+        assertThat(position.toString(), equalTo("<filename>:3:2"));
+    }
+
+    private static List<Integer> mapAll(
+        SourceText.PositionMapper positionMapper,
+        int derivedCharacterLength
+    ) {
+        var result = new ArrayList<Integer>();
+        for (var derivedCharacterIndex = 0; derivedCharacterIndex <= derivedCharacterLength; derivedCharacterIndex++) {
+            result.add(positionMapper.derivedCharacterIndexToOriginalCharacterIndex(derivedCharacterIndex));
+        }
+        return result;
+    }
+}
@@ -2,7 +2,9 @@ package org.zwobble.sourcetext;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.zwobble.precisely.AssertThat.assertThat;
@@ -91,6 +93,47 @@ public class SourceCharacterIteratorTests {
         assertThat(iterator.peek(), equalTo(-1));
     }
 
+    @Test
+    public void peekCodePointReturnsCurrentCharacterWhenNotSurrogate() {
+        var iterator = sourceCharacterIterator("ab");
+
+        assertThat(iterator.peekCodePoint(), equalTo((int)'a'));
+
+        iterator.skipCodePoint();
+        assertThat(iterator.peekCodePoint(), equalTo((int)'b'));
+
+        iterator.skipCodePoint();
+        assertThat(iterator.peekCodePoint(), equalTo(-1));
+    }
+
+    @Test
+    public void peekCodePointCombinesSurrogatePairs() {
+        var iterator = sourceCharacterIterator("a\uD835\uDC00b");
+        iterator.skip();
+
+        assertThat(iterator.peekCodePoint(), equalTo(0x1D400));
+
+        iterator.skipCodePoint();
+        assertThat(iterator.peekCodePoint(), equalTo((int)'b'));
+        assertThat(iterator.position().characterIndex(), equalTo(3));
+    }
+
+    @Test
+    public void peekCodePointReturnsUnpairedSurrogates() {
+        var iterator = sourceCharacterIterator("\uD835a\uDC00");
+
+        assertThat(iterator.peekCodePoint(), equalTo(0xD835));
+
+        iterator.skipCodePoint();
+        assertThat(iterator.peekCodePoint(), equalTo((int)'a'));
+
+        iterator.skipCodePoint();
+        assertThat(iterator.peekCodePoint(), equalTo(0xDC00));
+
+        iterator.skipCodePoint();
+        assertThat(iterator.isEnd(), equalTo(true));
+    }
+
     @Test
     public void peekSequenceCanReturnSubSequenceAtStart() {
         var iterator = sourceCharacterIterator("abcdef");
@@ -164,6 +207,28 @@ public class SourceCharacterIteratorTests {
         assertThat(result.end().characterIndex(), equalTo(3));
     }
 
+    @Test
+    public void whenNotAtEndThenPackedCharacterSourceRangeCoversSingleCharacter() {
+        var iterator = sourceCharacterIterator("abc");
+        iterator.skip();
+
+        var result = iterator.packedCharacterSourceRange();
+
+        assertThat(SourceRange.packedStartCharacterIndex(result), equalTo(1));
+        assertThat(SourceRange.packedEndCharacterIndex(result), equalTo(2));
+    }
+
+    @Test
+    public void whenAtEndThenPackedCharacterSourceRangeCoversZeroCharacters() {
+        var iterator = sourceCharacterIterator("abc");
+        iterator.skip(3);
+
+        var result = iterator.packedCharacterSourceRange();
+
+        assertThat(SourceRange.packedStartCharacterIndex(result), equalTo(3));
+        assertThat(SourceRange.packedEndCharacterIndex(result), equalTo(3));
+    }
+
     @Test
     public void sourceRangeCanBeConstructedFromPosition() {
         var iterator = sourceCharacterIterator("abcdef");
@@ -193,8 +258,162 @@ public class SourceCharacterIteratorTests {
         assertThat(iterator.peek(), equalTo((int)'c'));
     }
 
+    @Test
+    public void skipWhileSkipsCharactersMatchingPredicate() {
+        var iterator = sourceCharacterIterator("   abc");
+
+        iterator.skipWhile(character -> character == ' ');
+
+        assertThat(iterator.peek(), equalTo((int)'a'));
+    }
+
+    @Test
+    public void skipWhileStopsAtEnd() {
+        var iterator = sourceCharacterIterator("   ");
+
+        iterator.skipWhile(character -> character == ' ');
+
+        assertThat(iterator.isEnd(), equalTo(true));
+    }
+
+    @Test
+    public void skipUntilSkipsToNextOccurrenceOfCharacter() {
+        var iterator = sourceCharacterIterator("a/b/c");
+        iterator.skip(2);
+
+        iterator.skipUntil('/');
+
+        assertThat(iterator.characterIndex(), equalTo(3));
+    }
+
+    @Test
+    public void whenCharacterDoesNotOccurThenSkipUntilSkipsToEnd() {
+        var iterator = sourceCharacterIterator("abc");
+
+        iterator.skipUntil('/');
+
+        assertThat(iterator.isEnd(), equalTo(true));
+    }
+
+    @Test
+    public void skipUntilCanFindCharacterInByteBackedSourceText() {
+        var text = "0123456789abcdefghij/klm/";
+        var sourceText = SourceText.fromByteBuffer(
+            "<string>",
+            ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)),
+            StandardCharsets.UTF_8
+        );
+        var iterator = sourceText.characterIterator();
+
+        iterator.skipUntil('/');
+        assertThat(iterator.characterIndex(), equalTo(20));
+
+        iterator.skip();
+        iterator.skipUntil('/');
+        assertThat(iterator.characterIndex(), equalTo(24));
+
+        iterator.skip();
+        iterator.skipUntil('/');
+        assertThat(iterator.isEnd(), equalTo(true));
+    }
+
+    @Test
+    public void skipToLineEndLeavesPositionBeforeNewLine() {
+        var iterator = sourceCharacterIterator("// comment\nabc");
+
+        iterator.skipToLineEnd();
+
+        assertThat(iterator.peek(), equalTo((int)'\n'));
+    }
+
+    @Test
+    public void skipToLineEndLeavesPositionBeforeCarriageReturnWhenUsingUniversalLineTerminators() {
+        var iterator = SourceText.fromString("<filename>", "// comment\r\nabc")
+            .withLineTerminators(LineTerminators.UNIVERSAL)
+            .characterIterator();
+
+        iterator.skipToLineEnd();
+
+        assertThat(iterator.peek(), equalTo((int)'\r'));
+    }
+
+    @Test
+    public void iteratorCanBeMovedToCharacterIndex() {
+        var iterator = sourceCharacterIterator("abc");
+
+        iterator.characterIndex(2);
+
+        assertThat(iterator.peek(), equalTo((int) 'c'));
+    }
+
+    @Test
+    public void whenCharacterIndexIsBeyondEndThenMovingIteratorThrowsException() {
+        var iterator = sourceCharacterIterator("abc");
+
+        assertThrows(IllegalArgumentException.class, () -> iterator.characterIndex(4));
+    }
+
+    @Test
+    public void indexOfFindsNextOccurrenceOfSequence() {
+        var iterator = sourceCharacterIterator("/* a */ /* b */");
+        iterator.skip(2);
+
+        assertThat(iterator.indexOf("*/"), equalTo(5));
+        assertThat(iterator.indexOf(new StringBuilder("*/")), equalTo(5));
+        assertThat(iterator.indexOf("*//"), equalTo(-1));
+    }
+
+    @Test
+    public void matchesChecksCharactersAtCurrentPosition() {
+        var iterator = sourceCharacterIterator("abcdef");
+        iterator.skip(2);
+
+        assertThat(iterator.matches("cde"), equalTo(true));
+        assertThat(iterator.matches(new StringBuilder("cde")), equalTo(true));
+        assertThat(iterator.matches("cdf"), equalTo(false));
+        assertThat(iterator.matches("cdefg"), equalTo(false));
+        assertThat(iterator.characterIndex(), equalTo(2));
+    }
+
+    @Test
+    public void tryConsumeSkipsSequenceWhenItMatches() {
+        var iterator = sourceCharacterIterator("while (x)");
+
+        assertThat(iterator.tryConsume("if"), equalTo(false));
+        assertThat(iterator.characterIndex(), equalTo(0));
+
+        assertThat(iterator.tryConsume("while"), equalTo(true));
+        assertThat(iterator.characterIndex(), equalTo(5));
+    }
+
     public static SourceCharacterIterator sourceCharacterIterator(String text) {
         var sourceText = SourceText.fromString("<string>", text);
         return sourceText.characterIterator();
     }
+
+    @Test
+    public void forkedIteratorStartsAtSamePosition() {
+        var iterator = sourceCharacterIterator("abc");
+        iterator.skip();
+
+        var fork = iterator.fork();
+
+        assertThat(fork.characterIndex(), equalTo(1));
+        assertThat(fork.peek(), equalTo((int) 'b'));
+    }
+
+    @Test
+    public void forkedIteratorMovesIndependently() {
+        var iterator = sourceCharacterIterator("abc");
+        iterator.skip();
+        var fork = iterator.fork();
+
+        fork.skip();
+        fork.skip();
+
+        assertThat(iterator.characterIndex(), equalTo(1));
+        assertThat(fork.characterIndex(), equalTo(3));
+        assertThat(fork.isEnd(), equalTo(true));
+        assertThat(iterator.isEnd(), equalTo(false));
+    }
 }
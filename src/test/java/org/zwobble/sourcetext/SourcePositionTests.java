@@ -20,6 +20,30 @@ public class SourcePositionTests {
         assertThat(hashCode1, equalTo(hashCode2));
     }
 
+    @Test
+    public void positionsConstructedSeparatelyForSameSourceTextAndCharacterIndexAreEqual() {
+        var sourceText = SourceText.fromString("<string>", "abc");
+        var position1 = new SourcePosition(sourceText, 1);
+        var position2 = new SourcePosition(sourceText, 1);
+
+        var result = position1.equals(position2);
+        var hashCode1 = position1.hashCode();
+        var hashCode2 = position2.hashCode();
+
+        assertThat(result, equalTo(true));
+        assertThat(hashCode1, equalTo(hashCode2));
+    }
+
+    @Test
+    public void repeatedlyGettingSamePositionReturnsSameInstance() {
+        var sourceText = SourceText.fromString("<string>", "abc");
+
+        var position1 = sourceText.characterPosition(1);
+        var position2 = sourceText.characterPosition(1);
+
+        assertThat(position1 == position2, equalTo(true));
+    }
+
     @Test
     public void whenPositionsHaveDifferentSourceTextThenTheyAreNotEqual() {
         var sourceText1 = SourceText.fromString("<string>", "abc");
@@ -87,4 +111,14 @@ public class SourcePositionTests {
 
         assertThat(result, equalTo("<filename>:1:8"));
     }
+
+    @Test
+    public void lineColumnIsLineAndColumnInSourceText() {
+        var sourceText = SourceText.fromString("<string>", "ab\ncdefgh\nij");
+        var position = sourceText.characterPosition(5);
+
+        var result = position.lineColumn();
+
+        assertThat(result, equalTo(new SourceLineColumn(1, 2)));
+    }
 }
@@ -0,0 +1,145 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class SourceRangeIndexTests {
+    @Test
+    public void containingFindsIndicesOfRangesContainingPositionInOrderOfStart() {
+        var sourceText = SourceText.fromString("<string>", "f(g(x), y)");
+        var index = SourceRangeIndex.create(sourceText, List.of(
+            sourceText.sourceRange(4, 5),
+            sourceText.sourceRange(0, 10),
+            sourceText.sourceRange(8, 9),
+            sourceText.sourceRange(2, 6)
+        ));
+
+        var result = index.containing(sourceText.characterPosition(4));
+
+        assertThat(Arrays.toString(result), equalTo("[1, 3, 0]"));
+    }
+
+    @Test
+    public void innermostContainingFindsShortestRangeContainingPosition() {
+        var sourceText = SourceText.fromString("<string>", "f(g(x), y)");
+        var index = SourceRangeIndex.create(sourceText, List.of(
+            sourceText.sourceRange(0, 10),
+            sourceText.sourceRange(2, 6),
+            sourceText.sourceRange(4, 5),
+            sourceText.sourceRange(8, 9)
+        ));
+
+        assertThat(index.innermostContaining(sourceText.characterPosition(4)), equalTo(2));
+        assertThat(index.innermostContaining(sourceText.characterPosition(3)), equalTo(1));
+        assertThat(index.innermostContaining(sourceText.characterPosition(7)), equalTo(0));
+        assertThat(index.innermostContaining(sourceText.characterPosition(10)), equalTo(-1));
+    }
+
+    @Test
+    public void overlappingFindsIndicesOfRangesWithCharactersInCommon() {
+        var sourceText = SourceText.fromString("<string>", "abcdefghij");
+        var index = SourceRangeIndex.create(sourceText, List.of(
+            sourceText.sourceRange(0, 2),
+            sourceText.sourceRange(2, 4),
+            sourceText.sourceRange(3, 3),
+            sourceText.sourceRange(3, 8),
+            sourceText.sourceRange(6, 7)
+        ));
+
+        var result = index.overlapping(sourceText.sourceRange(2, 6));
+
+        assertThat(Arrays.toString(result), equalTo("[1, 2, 3]"));
+    }
+
+    @Test
+    public void overlappingEmptyRangeFindsRangesThatInsertionIsStrictlyInside() {
+        var sourceText = SourceText.fromString("<string>", "abcdefghij");
+        var index = SourceRangeIndex.create(sourceText, List.of(
+            sourceText.sourceRange(0, 2),
+            sourceText.sourceRange(1, 5),
+            sourceText.sourceRange(2, 4),
+            sourceText.sourceRange(3, 3)
+        ));
+
+        var result = index.overlapping(sourceText.sourceRange(2, 2));
+
+        assertThat(Arrays.toString(result), equalTo("[1]"));
+    }
+
+    @Test
+    public void overlappingFindsSameRangesAsCheckingEachRange() {
+        var sourceText = SourceText.fromString("<string>", "x".repeat(1000));
+        var random = new Random(42);
+        var sourceRanges = new ArrayList<SourceRange>();
+        for (var rangeIndex = 0; rangeIndex < 500; rangeIndex++) {
+            var start = random.nextInt(1000);
+            var end = start + random.nextInt(Math.min(1000 - start, 50) + 1);
+            sourceRanges.add(sourceText.sourceRange(start, end));
+        }
+        var index = SourceRangeIndex.create(sourceText, sourceRanges);
+
+        for (var queryIndex = 0; queryIndex < 200; queryIndex++) {
+            var start = random.nextInt(1000);
+            var query = sourceText.sourceRange(start, start + random.nextInt(1000 - start + 1));
+
+            var expected = new ArrayList<Integer>();
+            for (var rangeIndex = 0; rangeIndex < sourceRanges.size(); rangeIndex++) {
+                if (sourceRanges.get(rangeIndex).overlaps(query)) {
+                    expected.add(rangeIndex);
+                }
+            }
+            var result = new ArrayList<Integer>();
+            for (var rangeIndex : index.overlapping(query)) {
+                result.add(rangeIndex);
+            }
+            result.sort(null);
+
+            assertThat(result, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void forEachOverlappingVisitsIndicesOfOverlappingRanges() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var index = SourceRangeIndex.create(sourceText, List.of(
+            sourceText.sourceRange(0, 2),
+            sourceText.sourceRange(1, 5)
+        ));
+        var result = new ArrayList<Integer>();
+
+        index.forEachOverlapping(4, 6, result::add);
+
+        assertThat(result, equalTo(List.of(1)));
+    }
+
+    @Test
+    public void whenRangeIsInOtherSourceTextThenCreateThrowsException() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var otherSourceText = SourceText.fromString("<other>", "abcdef");
+
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> SourceRangeIndex.create(sourceText, List.of(otherSourceText.sourceRange(0, 1)))
+        );
+    }
+
+    @Test
+    public void whenPositionIsInOtherSourceTextThenContainingThrowsException() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var otherSourceText = SourceText.fromString("<other>", "abcdef");
+        var index = SourceRangeIndex.create(sourceText, List.of(sourceText.sourceRange(0, 1)));
+
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> index.containing(otherSourceText.characterPosition(0))
+        );
+    }
+}
@@ -404,4 +404,182 @@ public class SourceRangeTests {
 
         assertThat(result, equalTo("<string>:1:2:1:4"));
     }
+
+    @Test
+    public void rangeToStringIncludesLinesAndColumnsOfStartAndEnd() {
+        var sourceText = SourceText.fromString("<string>", "abc\ndef\nghi");
+        var start = sourceText.characterPosition(2);
+        var end = sourceText.characterPosition(9);
+        var sourceRange = start.to(end);
+
+        var result = sourceRange.toString();
+
+        assertThat(result, equalTo("<string>:1:3:3:2"));
+    }
+
+    @Test
+    public void lineRangeHasLinesAndColumnsOfStartAndEnd() {
+        var sourceText = SourceText.fromString("<string>", "abc\ndef\nghi");
+        var sourceRange = sourceText.characterPosition(2)
+            .to(sourceText.characterPosition(9));
+
+        var result = sourceRange.lineRange();
+
+        assertThat(result, equalTo(new SourceLineRange(
+            new SourceLineColumn(0, 2),
+            new SourceLineColumn(2, 1)
+        )));
+    }
+
+    @Test
+    public void packedRangeHasStartAndEndCharacterIndices() {
+        var packedRange = SourceRange.pack(3, 70000);
+
+        assertThat(SourceRange.packedStartCharacterIndex(packedRange), equalTo(3));
+        assertThat(SourceRange.packedEndCharacterIndex(packedRange), equalTo(70000));
+    }
+
+    @Test
+    public void rangeCanBeConvertedToAndFromPackedRange() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.characterPosition(1)
+            .to(sourceText.characterPosition(5));
+
+        var result = sourceText.sourceRange(sourceRange.packed());
+
+        assertThat(result, equalTo(sourceRange));
+    }
+
+    @Test
+    public void contentEqualsIsTrueWhenCharactersAreSame() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+
+        assertThat(sourceRange.contentEquals("bcd"), equalTo(true));
+        assertThat(sourceRange.contentEquals(new StringBuilder("bcd")), equalTo(true));
+    }
+
+    @Test
+    public void contentEqualsIsFalseWhenCharactersAreDifferent() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+
+        assertThat(sourceRange.contentEquals("bce"), equalTo(false));
+        assertThat(sourceRange.contentEquals("bc"), equalTo(false));
+        assertThat(sourceRange.contentEquals("bcde"), equalTo(false));
+    }
+
+    @Test
+    public void contentHashCodeIsSameAsHashCodeOfString() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+
+        var result = sourceRange.contentHashCode();
+
+        assertThat(result, equalTo("bcd".hashCode()));
+    }
+
+    @Test
+    public void getCharsCopiesCharactersIntoArray() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+        var destination = new char[5];
+
+        sourceRange.getChars(destination, 1);
+
+        assertThat(new String(destination), equalTo("\0bcd\0"));
+    }
+
+    @Test
+    public void whenDestinationIsTooShortThenGetCharsThrowsException() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+        var destination = new char[5];
+
+        assertThrows(IndexOutOfBoundsException.class, () -> sourceRange.getChars(destination, 3));
+    }
+
+    @Test
+    public void appendToAppendsCharactersToBuilder() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+        var builder = new StringBuilder("x");
+
+        sourceRange.appendTo(builder);
+
+        assertThat(builder.toString(), equalTo("xbcd"));
+    }
+
+    @Test
+    public void rangeContainsPositionsFromStartUpToButExcludingEnd() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+
+        assertThat(sourceRange.contains(sourceText.characterPosition(0)), equalTo(false));
+        assertThat(sourceRange.contains(sourceText.characterPosition(1)), equalTo(true));
+        assertThat(sourceRange.contains(sourceText.characterPosition(3)), equalTo(true));
+        assertThat(sourceRange.contains(sourceText.characterPosition(4)), equalTo(false));
+    }
+
+    @Test
+    public void rangeDoesNotContainPositionsInOtherSourceTexts() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var otherSourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+
+        var result = sourceRange.contains(otherSourceText.characterPosition(2));
+
+        assertThat(result, equalTo(false));
+    }
+
+    @Test
+    public void rangesOverlapWhenTheyHaveCharactersInCommon() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+
+        assertThat(sourceRange.overlaps(sourceText.sourceRange(0, 2)), equalTo(true));
+        assertThat(sourceRange.overlaps(sourceText.sourceRange(2, 3)), equalTo(true));
+        assertThat(sourceRange.overlaps(sourceText.sourceRange(3, 6)), equalTo(true));
+        assertThat(sourceRange.overlaps(sourceText.sourceRange(0, 1)), equalTo(false));
+        assertThat(sourceRange.overlaps(sourceText.sourceRange(4, 6)), equalTo(false));
+    }
+
+    @Test
+    public void emptyRangesOverlapRangesTheyAreStrictlyInside() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var sourceRange = sourceText.sourceRange(1, 4);
+
+        assertThat(sourceRange.overlaps(sourceText.sourceRange(2, 2)), equalTo(true));
+        assertThat(sourceText.sourceRange(2, 2).overlaps(sourceRange), equalTo(true));
+        assertThat(sourceRange.overlaps(sourceText.sourceRange(1, 1)), equalTo(false));
+        assertThat(sourceRange.overlaps(sourceText.sourceRange(4, 4)), equalTo(false));
+        assertThat(sourceText.sourceRange(2, 2).overlaps(sourceText.sourceRange(2, 2)), equalTo(false));
+    }
+
+    @Test
+    public void rangesAreOrderedByStartThenEnd() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+
+        var result = Stream.of(
+                sourceText.sourceRange(2, 3),
+                sourceText.sourceRange(1, 4),
+                sourceText.sourceRange(1, 2)
+            )
+            .sorted()
+            .collect(Collectors.toList());
+
+        assertThat(result, equalTo(List.of(
+            sourceText.sourceRange(1, 2),
+            sourceText.sourceRange(1, 4),
+            sourceText.sourceRange(2, 3)
+        )));
+    }
+
+    @Test
+    public void whenRangesAreInDifferentSourceTextsThenCompareToThrowsException() {
+        var sourceRange = SourceText.fromString("<string>", "abcdef").sourceRange(1, 4);
+        var otherSourceRange = SourceText.fromString("<string>", "abcdef").sourceRange(1, 4);
+
+        assertThrows(IllegalArgumentException.class, () -> sourceRange.compareTo(otherSourceRange));
+    }
 }
@@ -0,0 +1,94 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class SourceRangeViewTests {
+    @Test
+    public void newViewIsEmpty() {
+        var view = new SourceRangeView();
+
+        assertThat(view.length(), equalTo(0));
+        assertThat(view.toString(), equalTo(""));
+    }
+
+    @Test
+    public void viewHasCharactersOfRange() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var view = new SourceRangeView();
+
+        view.reset(sourceText.sourceRange(1, 4));
+
+        assertThat(view.length(), equalTo(3));
+        assertThat(view.charAt(0), equalTo('b'));
+        assertThat(view.charAt(2), equalTo('d'));
+        assertThat(view.toString(), equalTo("bcd"));
+    }
+
+    @Test
+    public void viewCanBeResetToAnotherRange() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var view = new SourceRangeView();
+        view.reset(sourceText, 1, 4);
+
+        view.reset(sourceText, 3, 5);
+
+        assertThat(view.toString(), equalTo("de"));
+        assertThat(view.contentEquals("de"), equalTo(true));
+        assertThat(view.contentHashCode(), equalTo("de".hashCode()));
+    }
+
+    @Test
+    public void subSequenceIsNotChangedByReset() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var view = new SourceRangeView().reset(sourceText, 1, 4);
+        var subSequence = view.subSequence(1, 3);
+
+        view.reset(sourceText, 0, 0);
+
+        assertThat(subSequence.toString(), equalTo("cd"));
+    }
+
+    @Test
+    public void viewCanBeOfByteStorage() {
+        var sourceText = SourceText.fromByteBuffer(
+            "<string>",
+            ByteBuffer.wrap("abcdef".getBytes(StandardCharsets.US_ASCII)),
+            StandardCharsets.US_ASCII
+        );
+        var view = new SourceRangeView().reset(sourceText, 2, 5);
+        var destination = new char[3];
+
+        view.getChars(destination, 0);
+
+        assertThat(new String(destination), equalTo("cde"));
+        assertThat(view.contentEquals("cde"), equalTo(true));
+    }
+
+    @Test
+    public void whenCharacterIndexIsOutOfRangeThenCharAtThrowsException() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var view = new SourceRangeView().reset(sourceText, 1, 4);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> view.charAt(3));
+    }
+
+    @Test
+    public void whenRangeIsOutOfRangeThenResetThrowsException() {
+        var sourceText = SourceText.fromString("<string>", "abcdef");
+        var view = new SourceRangeView();
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> view.reset(sourceText, 4, 7)
+        );
+
+        assertThat(error.getMessage(), equalTo("Character range 4 to 7 not in range"));
+    }
+}
@@ -0,0 +1,120 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class SourceSetTests {
+    @Test
+    public void sourceTextsAreGivenConsecutiveBaseOffsetsSeparatedByOne() {
+        var sourceSet = SourceSet.create();
+
+        var first = sourceSet.add(SourceText.fromString("<first>", "abc"));
+        var second = sourceSet.add(SourceText.fromString("<second>", ""));
+        var third = sourceSet.add(SourceText.fromString("<third>", "de"));
+
+        assertThat(first, equalTo(0));
+        assertThat(second, equalTo(4));
+        assertThat(third, equalTo(5));
+        assertThat(sourceSet.sourceTextCount(), equalTo(3));
+    }
+
+    @Test
+    public void addingSourceTextAgainReturnsExistingBaseOffset() {
+        var sourceSet = SourceSet.create();
+        var sourceText = SourceText.fromString("<second>", "def");
+        sourceSet.add(SourceText.fromString("<first>", "abc"));
+        sourceSet.add(sourceText);
+
+        var result = sourceSet.add(sourceText);
+
+        assertThat(result, equalTo(4));
+        assertThat(sourceSet.sourceTextCount(), equalTo(2));
+    }
+
+    @Test
+    public void offsetsResolveToPositionsInSourceTexts() {
+        var sourceSet = SourceSet.create();
+        var first = SourceText.fromString("<first>", "abc");
+        var second = SourceText.fromString("<second>", "de\nf");
+        sourceSet.add(first);
+        sourceSet.add(second);
+
+        assertThat(sourceSet.position(0), equalTo(first.characterPosition(0)));
+        assertThat(sourceSet.position(3), equalTo(first.characterPosition(3)));
+        assertThat(sourceSet.position(4), equalTo(second.characterPosition(0)));
+        assertThat(sourceSet.position(7).toString(), equalTo("<second>:2:1"));
+        assertThat(sourceSet.sourceText(8), equalTo(second));
+    }
+
+    @Test
+    public void packedRangesRoundTrip() {
+        var sourceSet = SourceSet.create();
+        var first = SourceText.fromString("<first>", "abc");
+        var second = SourceText.fromString("<second>", "def");
+        sourceSet.add(first);
+        sourceSet.add(second);
+        var sourceRange = second.sourceRange(1, 3);
+
+        var packed = sourceSet.pack(sourceRange);
+        var result = sourceSet.sourceRange(packed);
+
+        assertThat(SourceRange.packedStartCharacterIndex(packed), equalTo(5));
+        assertThat(SourceRange.packedEndCharacterIndex(packed), equalTo(7));
+        assertThat(result, equalTo(sourceRange));
+    }
+
+    @Test
+    public void offsetOfPositionIsBaseOffsetPlusCharacterIndex() {
+        var sourceSet = SourceSet.create();
+        var second = SourceText.fromString("<second>", "def");
+        sourceSet.add(SourceText.fromString("<first>", "abc"));
+        sourceSet.add(second);
+
+        var result = sourceSet.offset(second.characterPosition(2));
+
+        assertThat(result, equalTo(6));
+    }
+
+    @Test
+    public void whenRangeSpansSourceTextsThenErrorIsThrown() {
+        var sourceSet = SourceSet.create();
+        sourceSet.add(SourceText.fromString("<first>", "abc"));
+        sourceSet.add(SourceText.fromString("<second>", "def"));
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> sourceSet.sourceRange(2, 5)
+        );
+
+        assertThat(error.getMessage(), equalTo("Offsets 2 to 5 are not in the same source text"));
+    }
+
+    @Test
+    public void whenSourceTextIsNotInSetThenErrorIsThrown() {
+        var sourceSet = SourceSet.create();
+        var sourceText = SourceText.fromString("<string>", "abc");
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> sourceSet.offset(sourceText.characterPosition(0))
+        );
+
+        assertThat(error.getMessage(), equalTo("Source text <string> is not in source set"));
+    }
+
+    @Test
+    public void whenOffsetIsNotInRangeThenErrorIsThrown() {
+        var sourceSet = SourceSet.create();
+        sourceSet.add(SourceText.fromString("<string>", "abc"));
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> sourceSet.position(4)
+        );
+
+        assertThat(error.getMessage(), equalTo("Offset 4 not in range"));
+    }
+}
@@ -0,0 +1,190 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class SourceTextCacheTests {
+    @Test
+    public void sameContentsWithSameNameReturnsSameSourceText() {
+        var cache = SourceTextCache.create(1000);
+
+        var first = cache.get("<string>", "abc");
+        var second = cache.get("<string>", new String("abc"));
+
+        assertThat(second == first, equalTo(true));
+        assertThat(second.characterPosition(1), equalTo(first.characterPosition(1)));
+        assertThat(cache.size(), equalTo(1));
+    }
+
+    @Test
+    public void differentContentsWithSameNameReturnsNewSourceText() {
+        var cache = SourceTextCache.create(1000);
+
+        var first = cache.get("<string>", "abc");
+        var second = cache.get("<string>", "abd");
+
+        assertThat(second == first, equalTo(false));
+        assertThat(first.charSequence().toString(), equalTo("abc"));
+        assertThat(second.charSequence().toString(), equalTo("abd"));
+        assertThat(cache.size(), equalTo(1));
+    }
+
+    @Test
+    public void sameContentsWithDifferentNamesReturnsDifferentSourceTexts() {
+        var cache = SourceTextCache.create(1000);
+
+        var first = cache.get("<first>", "abc");
+        var second = cache.get("<second>", "abc");
+
+        assertThat(second == first, equalTo(false));
+        assertThat(cache.size(), equalTo(2));
+    }
+
+    @Test
+    public void unchangedFileReturnsSameSourceText() throws IOException {
+        var path = Files.createTempFile("source-text", ".txt");
+        try {
+            Files.writeString(path, "abc\ndef", StandardCharsets.UTF_8);
+            var cache = SourceTextCache.create(1000);
+
+            var first = cache.get(path);
+            var second = cache.get(path);
+
+            assertThat(second == first, equalTo(true));
+            assertThat(second.name(), equalTo(path.toString()));
+            assertThat(second.characterPosition(5).toString(), equalTo(path + ":2:2"));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void changedFileReturnsNewSourceText() throws IOException {
+        var path = Files.createTempFile("source-text", ".txt");
+        try {
+            Files.writeString(path, "abc", StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(1000));
+            var cache = SourceTextCache.create(1000);
+            var first = cache.get(path);
+
+            Files.writeString(path, "abcd", StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(2000));
+            var second = cache.get(path);
+
+            assertThat(second == first, equalTo(false));
+            assertThat(first.charSequence().toString(), equalTo("abc"));
+            assertThat(second.charSequence().toString(), equalTo("abcd"));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedContentsAreReleasedWhenOverBudget() {
+        var cache = SourceTextCache.create(10);
+
+        var first = cache.get("<first>", "abc");
+        cache.get("<second>", "def");
+        cache.get("<first>", "abc");
+        assertThat(cache.byteSize(), equalTo(6L));
+        cache.get("<third>", "ghi");
+
+        assertThat(cache.byteSize(), equalTo(6L));
+        assertThat(cache.size(), equalTo(3));
+        assertThat(cache.get("<first>", "abc") == first, equalTo(true));
+        assertThat(first.lineColumn(2), equalTo(new SourceLineColumn(0, 2)));
+    }
+
+    @Test
+    public void releasedContentsCanStillBeRead() {
+        var cache = SourceTextCache.create(0);
+
+        var sourceText = cache.get("<string>", "abc\ndef");
+
+        assertThat(cache.byteSize(), equalTo(0L));
+        assertThat(sourceText.characterLength(), equalTo(7));
+        assertThat(sourceText.sourceRange(4, 7).describe(), equalTo("""
+        <string>:2:1
+        def
+        ^^^"""));
+    }
+
+    @Test
+    public void releasedSourceTextOfFileCanStillBeReadAfterFileChanges() throws IOException {
+        var path = Files.createTempFile("source-text", ".txt");
+        try {
+            Files.writeString(path, "abc\ndef", StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(1000));
+            var cache = SourceTextCache.create(0);
+            var sourceText = cache.get(path);
+
+            Files.writeString(path, "xyz", StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(2000));
+
+            assertThat(sourceText.sourceRange(4, 7).describe(), equalTo(path + ":2:1\ndef\n^^^"));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void loadingSameFileFromManyThreadsAtOnceReturnsSameSourceText() throws IOException {
+        var path = Files.createTempFile("source-text", ".txt");
+        try {
+            Files.writeString(path, "abc\ndef", StandardCharsets.UTF_8);
+            var cache = SourceTextCache.create(1000);
+
+            var sourceTexts = IntStream.range(0, 8).parallel()
+                .mapToObj(thread -> {
+                    try {
+                        return cache.get(path);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                })
+                .toList();
+
+            for (var sourceText : sourceTexts) {
+                assertThat(sourceText == sourceTexts.get(0), equalTo(true));
+            }
+            assertThat(cache.size(), equalTo(1));
+            assertThat(cache.byteSize(), equalTo(7L));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void gettingSameContentsFromManyThreadsAtOnceReturnsSameSourceText() {
+        var cache = SourceTextCache.create(1000);
+
+        var sourceTexts = IntStream.range(0, 8).parallel()
+            .mapToObj(thread -> cache.get("<string>", new String("abc")))
+            .toList();
+
+        for (var sourceText : sourceTexts) {
+            assertThat(sourceText == sourceTexts.get(0), equalTo(true));
+        }
+        assertThat(cache.byteSize(), equalTo(6L));
+    }
+
+    @Test
+    public void whenMaxByteSizeIsNegativeThenErrorIsThrown() {
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> SourceTextCache.create(-1)
+        );
+
+        assertThat(error.getMessage(), equalTo("Maximum byte size -1 not in range"));
+    }
+}
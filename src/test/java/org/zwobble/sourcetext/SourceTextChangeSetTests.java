@@ -0,0 +1,179 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class SourceTextChangeSetTests {
+    @Test
+    public void rangesBeforeEditAreUnchanged() {
+        var sourceText = SourceText.fromString("<filename>", "abc def ghi");
+        var changeSet = SourceTextChangeSet.of(
+            sourceText.applyEdit(sourceText.sourceRange(4, 7), "xy")
+        );
+
+        var result = changeSet.rebase(sourceText.sourceRange(0, 3));
+
+        assertThat(result, equalTo(Optional.of(changeSet.newSourceText().sourceRange(0, 3))));
+    }
+
+    @Test
+    public void rangesAfterEditAreShifted() {
+        var sourceText = SourceText.fromString("<filename>", "abc def ghi");
+        var changeSet = SourceTextChangeSet.of(
+            sourceText.applyEdit(sourceText.sourceRange(4, 7), "xy")
+        );
+
+        var result = changeSet.rebase(sourceText.sourceRange(8, 11));
+
+        assertThat(result, equalTo(Optional.of(changeSet.newSourceText().sourceRange(7, 10))));
+    }
+
+    @Test
+    public void rangesTouchingEditAreNotInvalidated() {
+        var sourceText = SourceText.fromString("<filename>", "abcdefghi");
+        var changeSet = SourceTextChangeSet.of(
+            sourceText.applyEdit(sourceText.sourceRange(3, 6), "xy")
+        );
+
+        var before = changeSet.rebase(sourceText.sourceRange(0, 3));
+        var after = changeSet.rebase(sourceText.sourceRange(6, 9));
+
+        assertThat(before, equalTo(Optional.of(changeSet.newSourceText().sourceRange(0, 3))));
+        assertThat(after, equalTo(Optional.of(changeSet.newSourceText().sourceRange(5, 8))));
+    }
+
+    @Test
+    public void rangesOverlappingEditAreInvalidated() {
+        var sourceText = SourceText.fromString("<filename>", "abcdefghi");
+        var changeSet = SourceTextChangeSet.of(
+            sourceText.applyEdit(sourceText.sourceRange(3, 6), "xy")
+        );
+
+        assertThat(changeSet.rebase(sourceText.sourceRange(2, 4)), equalTo(Optional.empty()));
+        assertThat(changeSet.rebase(sourceText.sourceRange(5, 7)), equalTo(Optional.empty()));
+        assertThat(changeSet.rebase(sourceText.sourceRange(4, 5)), equalTo(Optional.empty()));
+        assertThat(changeSet.rebase(sourceText.sourceRange(0, 9)), equalTo(Optional.empty()));
+        assertThat(changeSet.rebase(sourceText.sourceRange(4, 4)), equalTo(Optional.empty()));
+    }
+
+    @Test
+    public void rangesContainingInsertionAreInvalidatedButRangesTouchingInsertionDoNotGrow() {
+        var sourceText = SourceText.fromString("<filename>", "abcdefghi");
+        var changeSet = SourceTextChangeSet.of(
+            sourceText.applyEdit(sourceText.sourceRange(3, 3), "xy")
+        );
+
+        assertThat(changeSet.rebase(sourceText.sourceRange(2, 4)), equalTo(Optional.empty()));
+        assertThat(changeSet.rebase(sourceText.sourceRange(0, 3)), equalTo(Optional.of(changeSet.newSourceText().sourceRange(0, 3))));
+        assertThat(changeSet.rebase(sourceText.sourceRange(3, 5)), equalTo(Optional.of(changeSet.newSourceText().sourceRange(5, 7))));
+    }
+
+    @Test
+    public void successiveEditsAreCombined() {
+        var sourceText = SourceText.fromString("<filename>", "one two three four five");
+        var firstEdit = sourceText.applyEdit(sourceText.sourceRange(4, 7), "2");
+        var secondEdit = firstEdit.newSourceText().applyEdit(
+            firstEdit.newSourceText().sourceRange(12, 16),
+            "FOUR!"
+        );
+
+        var changeSet = SourceTextChangeSet.of(firstEdit).andThen(secondEdit);
+
+        var newSourceText = changeSet.newSourceText();
+        assertThat(newSourceText.charSequence().toString(), equalTo("one 2 three FOUR! five"));
+        assertThat(changeSet.regionCount(), equalTo(2));
+        assertThat(
+            changeSet.rebase(sourceText.sourceRange(8, 13)).map(range -> range.charSequence().toString()),
+            equalTo(Optional.of("three"))
+        );
+        assertThat(
+            changeSet.rebase(sourceText.sourceRange(19, 23)).map(range -> range.charSequence().toString()),
+            equalTo(Optional.of("five"))
+        );
+        assertThat(changeSet.rebase(sourceText.sourceRange(14, 18)), equalTo(Optional.empty()));
+    }
+
+    @Test
+    public void overlappingEditsAreMerged() {
+        var sourceText = SourceText.fromString("<filename>", "abcdefghij");
+        var firstEdit = sourceText.applyEdit(sourceText.sourceRange(2, 4), "XYZ");
+        var secondEdit = firstEdit.newSourceText().applyEdit(
+            firstEdit.newSourceText().sourceRange(4, 7),
+            ""
+        );
+
+        var changeSet = SourceTextChangeSet.of(firstEdit).andThen(secondEdit);
+
+        assertThat(changeSet.newSourceText().charSequence().toString(), equalTo("abXYghij"));
+        assertThat(changeSet.regionCount(), equalTo(1));
+        assertThat(changeSet.rebase(sourceText.sourceRange(4, 6)), equalTo(Optional.empty()));
+        assertThat(
+            changeSet.rebase(sourceText.sourceRange(6, 10)).map(range -> range.charSequence().toString()),
+            equalTo(Optional.of("ghij"))
+        );
+    }
+
+    @Test
+    public void changeSetBetweenSourceTextsCoversDifferingCharacters() {
+        var oldSourceText = SourceText.fromString("<filename>", "let x = 1;\nlet y = 2;\n");
+        var newSourceText = SourceText.fromString("<filename>", "let x = 1;\nlet yy = 2;\n");
+
+        var changeSet = SourceTextChangeSet.between(oldSourceText, newSourceText);
+
+        assertThat(changeSet.regionCount(), equalTo(1));
+        assertThat(changeSet.rebase(oldSourceText.sourceRange(0, 10)), equalTo(Optional.of(newSourceText.sourceRange(0, 10))));
+        assertThat(changeSet.rebase(oldSourceText.sourceRange(17, 21)), equalTo(Optional.of(newSourceText.sourceRange(18, 22))));
+    }
+
+    @Test
+    public void changeSetBetweenEqualSourceTextsHasNoRegions() {
+        var oldSourceText = SourceText.fromString("<filename>", "abc");
+        var newSourceText = SourceText.fromString("<filename>", "abc");
+
+        var changeSet = SourceTextChangeSet.between(oldSourceText, newSourceText);
+
+        assertThat(changeSet.regionCount(), equalTo(0));
+        assertThat(changeSet.rebase(oldSourceText.sourceRange(0, 3)), equalTo(Optional.of(newSourceText.sourceRange(0, 3))));
+    }
+
+    @Test
+    public void manyRangesCanBeRebasedAtOnce() {
+        var sourceText = SourceText.fromString("<filename>", "abcdefghi");
+        var changeSet = SourceTextChangeSet.of(
+            sourceText.applyEdit(sourceText.sourceRange(3, 6), "")
+        );
+
+        var result = changeSet.rebase(new SourceRange[] {
+            sourceText.sourceRange(0, 2),
+            sourceText.sourceRange(4, 5),
+            sourceText.sourceRange(7, 9),
+        });
+
+        var newSourceText = changeSet.newSourceText();
+        assertThat(Arrays.asList(result), equalTo(Arrays.asList(
+            newSourceText.sourceRange(0, 2),
+            null,
+            newSourceText.sourceRange(4, 6)
+        )));
+    }
+
+    @Test
+    public void whenEditIsNotOfNewSourceTextThenErrorIsThrown() {
+        var sourceText = SourceText.fromString("<filename>", "abc");
+        var edit = sourceText.applyEdit(sourceText.sourceRange(0, 1), "");
+        var changeSet = SourceTextChangeSet.of(edit);
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> changeSet.andThen(edit)
+        );
+
+        assertThat(error.getMessage(), equalTo("Edit must be of the new source text of the change set"));
+    }
+}
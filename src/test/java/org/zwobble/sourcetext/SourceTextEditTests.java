@@ -0,0 +1,155 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class SourceTextEditTests {
+    @Test
+    public void newSourceTextHasRangeReplaced() {
+        var sourceText = SourceText.fromString("<filename>", "abcdef");
+
+        var edit = sourceText.applyEdit(sourceText.sourceRange(2, 4), "XYZ");
+
+        var newSourceText = edit.newSourceText();
+        assertThat(newSourceText.charSequence().toString(), equalTo("abXYZef"));
+        assertThat(newSourceText.characterLength(), equalTo(7));
+        assertThat(newSourceText.getCharacter(4), equalTo((int) 'Z'));
+        assertThat(newSourceText.charSequence(1, 6).toString(), equalTo("bXYZe"));
+        assertThat(newSourceText.name(), equalTo("<filename>"));
+        assertThat(sourceText.charSequence().toString(), equalTo("abcdef"));
+    }
+
+    @Test
+    public void editsCanBeAppliedRepeatedly() {
+        var sourceText = SourceText.fromString("<filename>", "abcdef");
+
+        sourceText = sourceText.applyEdit(sourceText.sourceRange(0, 0), "1").newSourceText();
+        sourceText = sourceText.applyEdit(sourceText.sourceRange(7, 7), "2").newSourceText();
+        sourceText = sourceText.applyEdit(sourceText.sourceRange(2, 5), "").newSourceText();
+        sourceText = sourceText.applyEdit(sourceText.sourceRange(1, 3), "[a-e]").newSourceText();
+
+        assertThat(sourceText.charSequence().toString(), equalTo("1[a-e]f2"));
+    }
+
+    @Test
+    public void manyEditsProduceSameTextAsEditingString() {
+        var sourceText = SourceText.fromString("<filename>", "");
+        var expected = new StringBuilder();
+
+        for (var index = 0; index < 3000; index++) {
+            var characterIndex = (index * 7) % (expected.length() + 1);
+            sourceText = sourceText.applyEdit(
+                sourceText.sourceRange(characterIndex, characterIndex),
+                Integer.toString(index % 10)
+            ).newSourceText();
+            expected.insert(characterIndex, index % 10);
+        }
+
+        assertThat(sourceText.charSequence().toString(), equalTo(expected.toString()));
+    }
+
+    @Test
+    public void lineIndexIsUpdatedByEdit() {
+        var sourceText = SourceText.fromString("<filename>", "ab\ncd\nef\ngh");
+        sourceText.lineIndex(0);
+
+        var newSourceText = sourceText.applyEdit(sourceText.sourceRange(4, 7), "x\ny\nz").newSourceText();
+
+        assertThat(newSourceText.charSequence().toString(), equalTo("ab\ncx\ny\nzf\ngh"));
+        var lineStarts = new ArrayList<Integer>();
+        for (var lineIndex = 0; lineIndex < 5; lineIndex++) {
+            lineStarts.add(newSourceText.lineStart(lineIndex));
+        }
+        assertThat(lineStarts, equalTo(List.of(0, 3, 6, 8, 11)));
+        assertThat(newSourceText.characterPosition(12).toString(), equalTo("<filename>:5:2"));
+    }
+
+    @Test
+    public void positionsBeforeEditAreUnchanged() {
+        var sourceText = SourceText.fromString("<filename>", "abcdef");
+        var edit = sourceText.applyEdit(sourceText.sourceRange(2, 4), "XYZ");
+
+        assertThat(edit.rebase(sourceText.characterPosition(1)), equalTo(edit.newSourceText().characterPosition(1)));
+        assertThat(edit.rebase(sourceText.characterPosition(2)), equalTo(edit.newSourceText().characterPosition(2)));
+    }
+
+    @Test
+    public void positionsWithinEditAreMovedToEndOfReplacement() {
+        var sourceText = SourceText.fromString("<filename>", "abcdef");
+        var edit = sourceText.applyEdit(sourceText.sourceRange(2, 4), "XYZ");
+
+        assertThat(edit.rebase(sourceText.characterPosition(3)), equalTo(edit.newSourceText().characterPosition(5)));
+    }
+
+    @Test
+    public void positionsAfterEditAreShifted() {
+        var sourceText = SourceText.fromString("<filename>", "abcdef");
+        var edit = sourceText.applyEdit(sourceText.sourceRange(2, 4), "XYZ");
+
+        assertThat(edit.rebase(sourceText.characterPosition(4)), equalTo(edit.newSourceText().characterPosition(5)));
+        assertThat(edit.rebase(sourceText.characterPosition(6)), equalTo(edit.newSourceText().characterPosition(7)));
+    }
+
+    @Test
+    public void rangesAreRebased() {
+        var sourceText = SourceText.fromString("<filename>", "abcdef");
+        var edit = sourceText.applyEdit(sourceText.sourceRange(1, 2), "");
+
+        var result = edit.rebase(sourceText.sourceRange(3, 5));
+
+        assertThat(result, equalTo(edit.newSourceText().sourceRange(2, 4)));
+        assertThat(result.charSequence().toString(), equalTo("de"));
+    }
+
+    @Test
+    public void editRangesAreInOldAndNewSourceTexts() {
+        var sourceText = SourceText.fromString("<filename>", "abcdef");
+        var edit = sourceText.applyEdit(sourceText.sourceRange(2, 4), "XYZ");
+
+        assertThat(edit.oldSourceRange(), equalTo(sourceText.sourceRange(2, 4)));
+        assertThat(edit.newSourceRange(), equalTo(edit.newSourceText().sourceRange(2, 5)));
+    }
+
+    @Test
+    public void whenRangeIsFromOtherSourceTextThenErrorIsThrown() {
+        var sourceText = SourceText.fromString("<filename>", "abcdef");
+        var other = SourceText.fromString("<filename>", "abcdef");
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> sourceText.applyEdit(other.sourceRange(0, 1), "")
+        );
+
+        assertThat(error.getMessage(), equalTo("Source range must be in this source text"));
+    }
+
+    @Test
+    public void whenRangeIsReversedThenErrorIsThrown() {
+        var sourceText = SourceText.fromString("<filename>", "abc\ndef");
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> sourceText.applyEdit(sourceText.sourceRange(2, 1), "X")
+        );
+
+        assertThat(error.getMessage(), equalTo("Character range 2 to 1 not in range"));
+    }
+
+    @Test
+    public void whenRangeIsPastEndThenErrorIsThrown() {
+        var sourceText = SourceText.fromString("<filename>", "abc\ndef");
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> sourceText.applyEdit(sourceText.sourceRange(5, 40), "X")
+        );
+
+        assertThat(error.getMessage(), equalTo("Character range 5 to 40 not in range"));
+    }
+}
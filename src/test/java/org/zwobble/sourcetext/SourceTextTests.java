@@ -2,6 +2,22 @@ package org.zwobble.sourcetext;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.zwobble.precisely.AssertThat.assertThat;
 import static org.zwobble.precisely.Matchers.equalTo;
 
@@ -20,4 +36,528 @@ public class SourceTextTests {
         abcdef
           ^^^"""));
     }
+
+    @Test
+    public void lineIndexIsNumberOfNewLinesBeforeCharacterIndex() {
+        var sourceText = SourceText.fromString("<filename>", "ab\ncdefgh\n\nij");
+
+        assertThat(sourceText.lineIndex(0), equalTo(0));
+        assertThat(sourceText.lineIndex(2), equalTo(0));
+        assertThat(sourceText.lineIndex(3), equalTo(1));
+        assertThat(sourceText.lineIndex(9), equalTo(1));
+        assertThat(sourceText.lineIndex(10), equalTo(2));
+        assertThat(sourceText.lineIndex(11), equalTo(3));
+        assertThat(sourceText.lineIndex(13), equalTo(3));
+    }
+
+    @Test
+    public void columnIndexIsOffsetFromStartOfLine() {
+        var sourceText = SourceText.fromString("<filename>", "ab\ncdefgh\n\nij");
+
+        assertThat(sourceText.columnIndex(0), equalTo(0));
+        assertThat(sourceText.columnIndex(2), equalTo(2));
+        assertThat(sourceText.columnIndex(5), equalTo(2));
+        assertThat(sourceText.columnIndex(10), equalTo(0));
+        assertThat(sourceText.columnIndex(13), equalTo(2));
+    }
+
+    @Test
+    public void lineStartIsCharacterIndexAfterPreviousNewLine() {
+        var sourceText = SourceText.fromString("<filename>", "ab\ncdefgh\n\nij\n");
+
+        assertThat(sourceText.lineStart(0), equalTo(0));
+        assertThat(sourceText.lineStart(1), equalTo(3));
+        assertThat(sourceText.lineStart(2), equalTo(10));
+        assertThat(sourceText.lineStart(3), equalTo(11));
+        assertThat(sourceText.lineStart(4), equalTo(14));
+    }
+
+    @Test
+    public void whenCharacterIndexIsBeyondEndThenLineIndexThrowsException() {
+        var sourceText = SourceText.fromString("<filename>", "abc");
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> sourceText.lineIndex(4)
+        );
+
+        assertThat(error.getMessage(), equalTo("Character index 4 not in range"));
+    }
+
+    @Test
+    public void whenLineIndexIsBeyondLastLineThenLineStartThrowsException() {
+        var sourceText = SourceText.fromString("<filename>", "abc\ndef");
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> sourceText.lineStart(2)
+        );
+
+        assertThat(error.getMessage(), equalTo("Line index 2 not in range"));
+    }
+
+    @Test
+    public void lineColumnHasLineIndexAndColumnIndex() {
+        var sourceText = SourceText.fromString("<filename>", "ab\ncdefgh\nij");
+
+        var result = sourceText.lineColumn(5);
+
+        assertThat(result, equalTo(new SourceLineColumn(1, 2)));
+        assertThat(result.lineNumber(), equalTo(2));
+        assertThat(result.columnNumber(), equalTo(3));
+    }
+
+    @Test
+    public void lineColumnsResolvesEachCharacterIndex() {
+        var sourceText = SourceText.fromString("<filename>", "ab\ncdefgh\n\nij");
+
+        var result = sourceText.lineColumns(new int[] {0, 2, 3, 3, 9, 10, 13});
+
+        assertThat(List.of(result), equalTo(List.of(
+            new SourceLineColumn(0, 0),
+            new SourceLineColumn(0, 2),
+            new SourceLineColumn(1, 0),
+            new SourceLineColumn(1, 0),
+            new SourceLineColumn(1, 6),
+            new SourceLineColumn(2, 0),
+            new SourceLineColumn(3, 2)
+        )));
+    }
+
+    @Test
+    public void whenCharacterIndicesAreNotSortedThenLineColumnsThrowsException() {
+        var sourceText = SourceText.fromString("<filename>", "ab\ncdefgh\nij");
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> sourceText.lineColumns(new int[] {1, 5, 4})
+        );
+
+        assertThat(error.getMessage(), equalTo("Character indices must be in ascending order, but 4 follows 5"));
+    }
+
+    @Test
+    public void canCreateSourceTextFromAsciiBytes() {
+        var bytes = ByteBuffer.wrap("abc\ndef".getBytes(StandardCharsets.UTF_8));
+
+        var sourceText = SourceText.fromByteBuffer("<filename>", bytes, StandardCharsets.UTF_8);
+
+        assertThat(sourceText.characterLength(), equalTo(7));
+        assertThat(sourceText.getCharacter(4), equalTo((int) 'd'));
+        assertThat(sourceText.charSequence(1, 6).toString(), equalTo("bc\nde"));
+        assertThat(sourceText.charSequence().toString(), equalTo("abc\ndef"));
+    }
+
+    @Test
+    public void canCreateSourceTextFromNonAsciiUtf8Bytes() {
+        var bytes = ByteBuffer.wrap("a\u00e9\u4e16b".getBytes(StandardCharsets.UTF_8));
+
+        var sourceText = SourceText.fromByteBuffer("<filename>", bytes, StandardCharsets.UTF_8);
+
+        assertThat(sourceText.characterLength(), equalTo(4));
+        assertThat(sourceText.getCharacter(2), equalTo((int) '\u4e16'));
+        assertThat(sourceText.charSequence(1, 4).toString(), equalTo("\u00e9\u4e16b"));
+    }
+
+    @Test
+    public void canCreateSourceTextFromUtf8BytesWithOnlyLatin1Characters() {
+        var bytes = ByteBuffer.wrap("caf\u00e9\nna\u00efve".getBytes(StandardCharsets.UTF_8));
+
+        var sourceText = SourceText.fromByteBuffer("<filename>", bytes, StandardCharsets.UTF_8);
+
+        assertThat(sourceText.characterLength(), equalTo(10));
+        assertThat(sourceText.getCharacter(3), equalTo((int) '\u00e9'));
+        assertThat(sourceText.charSequence(2, 8).toString(), equalTo("f\u00e9\nna\u00ef"));
+        assertThat(sourceText.lineColumn(8), equalTo(new SourceLineColumn(1, 3)));
+        assertThat(sourceText.sourceRange(7, 8).contentEquals("\u00ef"), equalTo(true));
+    }
+
+    @Test
+    public void canSearchForCharactersOutsideOfLatin1InSourceTextWithOnlyLatin1Characters() {
+        var bytes = ByteBuffer.wrap("caf\u00e9".getBytes(StandardCharsets.UTF_8));
+        var sourceText = SourceText.fromByteBuffer("<filename>", bytes, StandardCharsets.UTF_8);
+        var iterator = sourceText.characterIterator();
+
+        iterator.skipUntil('\u4e16');
+
+        assertThat(iterator.isEnd(), equalTo(true));
+        assertThat(iterator.characterIndex(), equalTo(4));
+    }
+
+    @Test
+    public void canCreateSourceTextFromLatin1Bytes() {
+        var bytes = ByteBuffer.wrap("caf\u00e9".getBytes(StandardCharsets.ISO_8859_1));
+
+        var sourceText = SourceText.fromByteBuffer("<filename>", bytes, StandardCharsets.ISO_8859_1);
+
+        assertThat(sourceText.characterLength(), equalTo(4));
+        assertThat(sourceText.getCharacter(3), equalTo((int) '\u00e9'));
+        assertThat(sourceText.charSequence(2, 4).toString(), equalTo("f\u00e9"));
+    }
+
+    @Test
+    public void onlyRemainingBytesOfByteBufferAreUsed() {
+        var bytes = ByteBuffer.wrap("abcdef".getBytes(StandardCharsets.UTF_8));
+        bytes.position(2);
+
+        var sourceText = SourceText.fromByteBuffer("<filename>", bytes, StandardCharsets.UTF_8);
+
+        assertThat(sourceText.charSequence().toString(), equalTo("cdef"));
+    }
+
+    @Test
+    public void canCreateSourceTextFromPath() throws IOException {
+        var path = Files.createTempFile("source-text", ".txt");
+        try {
+            Files.writeString(path, "abc\ndef\u4e16", StandardCharsets.UTF_8);
+
+            var sourceText = SourceText.fromPath(path);
+
+            assertThat(sourceText.name(), equalTo(path.toString()));
+            assertThat(sourceText.charSequence().toString(), equalTo("abc\ndef\u4e16"));
+            assertThat(sourceText.characterPosition(5).toString(), equalTo(path + ":2:2"));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void codePointColumnIndexCountsSurrogatePairsAsOneColumn() {
+        var sourceText = SourceText.fromString("<filename>", "a\n\uD835\uDC00b\uD835\uDC01c");
+
+        assertThat(sourceText.columnIndex(7), equalTo(5));
+        assertThat(sourceText.codePointColumnIndex(2), equalTo(0));
+        assertThat(sourceText.codePointColumnIndex(4), equalTo(1));
+        assertThat(sourceText.codePointColumnIndex(7), equalTo(3));
+    }
+
+    @Test
+    public void whenTextHasNoSurrogatesThenCodePointColumnIndexIsColumnIndex() {
+        var sourceText = SourceText.fromString("<filename>", "ab\ncdef");
+
+        assertThat(sourceText.codePointColumnIndex(6), equalTo(3));
+    }
+
+    @Test
+    public void lineCountIsNumberOfNewLinesPlusOne() {
+        var sourceText = SourceText.fromString("<filename>", "ab\ncd\n");
+
+        assertThat(sourceText.lineCount(), equalTo(3));
+    }
+
+    @Test
+    public void largeTextsHaveSameLineIndexAsWhenIndexedSequentially() {
+        var builder = new StringBuilder();
+        var expectedLineStarts = new ArrayList<Integer>();
+        expectedLineStarts.add(0);
+        for (var lineIndex = 0; builder.length() < 3_000_000; lineIndex++) {
+            builder.append("x".repeat(lineIndex % 200)).append('\n');
+            expectedLineStarts.add(builder.length());
+        }
+        var sourceText = SourceText.fromString("<filename>", builder.toString());
+
+        var lineStarts = new ArrayList<Integer>();
+        for (var lineIndex = 0; lineIndex < sourceText.lineCount(); lineIndex++) {
+            lineStarts.add(sourceText.lineStart(lineIndex));
+        }
+
+        assertThat(lineStarts, equalTo(expectedLineStarts));
+        assertThat(sourceText.lineIndex(builder.length() - 1), equalTo(expectedLineStarts.size() - 2));
+    }
+
+    @Test
+    public void linesAreRangesOfEachLineExcludingNewLines() {
+        var sourceText = SourceText.fromString("<filename>", "ab\n\ncde\nf");
+
+        var result = sourceText.lines()
+            .map(line -> line.charSequence().toString())
+            .collect(Collectors.toList());
+
+        assertThat(result, equalTo(List.of("ab", "", "cde", "f")));
+    }
+
+    @Test
+    public void byDefaultOnlyNewLinesEndLines() {
+        var sourceText = SourceText.fromString("<filename>", "a\r\nb\rc");
+
+        var result = sourceText.lines()
+            .map(line -> line.charSequence().toString())
+            .collect(Collectors.toList());
+
+        assertThat(result, equalTo(List.of("a\r", "b\rc")));
+    }
+
+    @Test
+    public void universalLineTerminatorsEndLinesAtNewLinesAndCarriageReturns() {
+        var sourceText = SourceText.fromString("<filename>", "a\r\nb\rc\nd\r")
+            .withLineTerminators(LineTerminators.UNIVERSAL);
+
+        var result = sourceText.lines()
+            .map(line -> line.charSequence().toString())
+            .collect(Collectors.toList());
+
+        assertThat(result, equalTo(List.of("a", "b", "c", "d", "")));
+        assertThat(sourceText.lineColumn(4), equalTo(new SourceLineColumn(1, 1)));
+        assertThat(sourceText.lineColumn(6), equalTo(new SourceLineColumn(2, 1)));
+    }
+
+    @Test
+    public void unicodeLineTerminatorsAlsoEndLinesAtLineSeparators() {
+        var sourceText = SourceText.fromString("<filename>", "a\r\nb\u2028c\u0085d\u000ce")
+            .withLineTerminators(LineTerminators.UNICODE);
+
+        var result = sourceText.lines()
+            .map(line -> line.charSequence().toString())
+            .collect(Collectors.toList());
+
+        assertThat(result, equalTo(List.of("a", "b", "c", "d", "e")));
+    }
+
+    @Test
+    public void describingRangeWithCarriageReturnsExcludesLineTerminator() {
+        var sourceText = SourceText.fromString("<filename>", "ab\r\ncd\r\n")
+            .withLineTerminators(LineTerminators.UNIVERSAL);
+
+        var result = sourceText.sourceRange(4, 6).describe();
+
+        assertThat(result, equalTo("<filename>:2:1\ncd\n^^"));
+    }
+
+    @Test
+    public void largeTextsWithCarriageReturnsHaveSameLineIndexAsWhenIndexedSequentially() {
+        var builder = new StringBuilder();
+        var expectedLineStarts = new ArrayList<Integer>();
+        expectedLineStarts.add(0);
+        for (var lineIndex = 0; builder.length() < 3_000_000; lineIndex++) {
+            builder.append("x".repeat(lineIndex % 200)).append(lineIndex % 3 == 0 ? "\r" : "\r\n");
+            expectedLineStarts.add(builder.length());
+        }
+        var sourceText = SourceText.fromString("<filename>", builder.toString())
+            .withLineTerminators(LineTerminators.UNIVERSAL);
+
+        var lineStarts = new ArrayList<Integer>();
+        for (var lineIndex = 0; lineIndex < sourceText.lineCount(); lineIndex++) {
+            lineStarts.add(sourceText.lineStart(lineIndex));
+        }
+
+        assertThat(lineStarts, equalTo(expectedLineStarts));
+    }
+
+    @Test
+    public void editingLineTerminatorsUpdatesLineIndex() {
+        var sourceText = SourceText.fromString("<filename>", "ab\rcd\r\nef")
+            .withLineTerminators(LineTerminators.UNIVERSAL);
+        sourceText.lineCount();
+
+        var edit = sourceText.applyEdit(sourceText.sourceRange(3, 3), "\n");
+        var newSourceText = edit.newSourceText();
+
+        var result = newSourceText.lines()
+            .map(line -> line.charSequence().toString())
+            .collect(Collectors.toList());
+        assertThat(result, equalTo(List.of("ab", "cd", "ef")));
+        assertThat(newSourceText.lineTerminators(), equalTo(LineTerminators.UNIVERSAL));
+    }
+
+    @Test
+    public void linesCanBeProcessedInParallel() {
+        var builder = new StringBuilder();
+        for (var lineIndex = 0; lineIndex < 10000; lineIndex++) {
+            builder.append(lineIndex).append('\n');
+        }
+        var sourceText = SourceText.fromString("<filename>", builder.toString());
+
+        var result = sourceText.lines()
+            .parallel()
+            .filter(line -> line.characterLength() > 0)
+            .mapToInt(line -> Integer.parseInt(line.charSequence().toString()))
+            .sum();
+
+        assertThat(result, equalTo(10000 * 9999 / 2));
+    }
+
+    @Test
+    public void charactersIsStreamOfEachCharacter() {
+        var sourceText = SourceText.fromString("<filename>", "a\nb\n");
+
+        var result = sourceText.characters().parallel().filter(character -> character == '\n').count();
+
+        assertThat(result, equalTo(2L));
+    }
+
+    @Test
+    public void streamedSourceTextHasSameCharactersAsReader() {
+        var sourceText = SourceText.fromReader("<filename>", new StringReader("ab\ncd"));
+
+        assertThat(sourceText.charSequence().toString(), equalTo("ab\ncd"));
+        assertThat(sourceText.characterLength(), equalTo(5));
+        assertThat(sourceText.lineCount(), equalTo(2));
+        assertThat(sourceText.lineColumn(4), equalTo(new SourceLineColumn(1, 1)));
+    }
+
+    @Test
+    public void streamedSourceTextCanBeReadFromChannel() {
+        var bytes = "ab\n\u2603".getBytes(StandardCharsets.UTF_8);
+        var sourceText = SourceText.fromChannel(
+            "<filename>",
+            Channels.newChannel(new ByteArrayInputStream(bytes)),
+            StandardCharsets.UTF_8
+        );
+
+        assertThat(sourceText.charSequence().toString(), equalTo("ab\n\u2603"));
+    }
+
+    @Test
+    public void streamedSourceTextOnlyReadsCharactersAsTheyAreNeeded() {
+        var sourceText = SourceText.fromReader("<filename>", endlessReader("abc\n"));
+        var iterator = sourceText.characterIterator();
+
+        iterator.skip(1_000_002);
+        var result = iterator.position();
+
+        assertThat(iterator.peek(), equalTo((int) 'c'));
+        assertThat(result.lineColumn(), equalTo(new SourceLineColumn(250_000, 2)));
+        assertThat(result.toString(), equalTo("<filename>:250001:3"));
+    }
+
+    @Test
+    public void streamedSourceTextCanDescribeRangesWithoutReadingToEnd() {
+        var sourceText = SourceText.fromReader("<filename>", endlessReader("abc\n"));
+
+        var result = sourceText.sourceRange(5, 7).describe();
+
+        assertThat(result, equalTo("""
+        <filename>:2:2
+        abc
+         ^^"""));
+    }
+
+    @Test
+    public void releasedCharactersOfStreamedSourceTextCannotBeRead() {
+        var sourceText = SourceText.fromReader("<filename>", endlessReader("abc\n"));
+        var iterator = sourceText.characterIterator();
+        iterator.skip(100_000);
+
+        sourceText.releaseBefore(iterator.characterIndex());
+
+        assertThrows(IllegalStateException.class, () -> sourceText.getCharacter(0));
+        assertThat(sourceText.getCharacter(100_000), equalTo((int) 'a'));
+        assertThat(sourceText.lineColumn(5), equalTo(new SourceLineColumn(1, 1)));
+    }
+
+    @Test
+    public void streamedSourceTextCanBeIteratedWithBoundedWindow() {
+        var sourceText = SourceText.fromReader("<filename>", endlessReader("abc\n"));
+        var iterator = sourceText.characterIterator();
+
+        var lineCount = 0;
+        while (lineCount < 1_000_000) {
+            iterator.skipToLineEnd();
+            iterator.skip();
+            lineCount++;
+            sourceText.releaseBefore(iterator.characterIndex());
+        }
+
+        assertThat(iterator.characterIndex(), equalTo(4_000_000));
+        assertThat(iterator.position().lineColumn(), equalTo(new SourceLineColumn(1_000_000, 0)));
+    }
+
+    @Test
+    public void streamedSourceTextFindsCarriageReturnsSplitAcrossReads() {
+        var contents = "a\rb\r\nc\r\r\nd\r";
+        var reader = new Reader() {
+            private int index = 0;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                // Read one character at a time, so that each '\r' is the
+                // last character of a read.
+                if (this.index == contents.length()) {
+                    return -1;
+                }
+                buffer[offset] = contents.charAt(this.index++);
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        var sourceText = SourceText.fromReader("<filename>", reader, LineTerminators.UNIVERSAL);
+
+        assertThat(sourceText.lineIndex(2), equalTo(1));
+        assertThat(sourceText.lineIndex(5), equalTo(2));
+        var result = sourceText.lines()
+            .map(line -> line.charSequence().toString())
+            .collect(Collectors.toList());
+        assertThat(result, equalTo(List.of("a", "b", "c", "", "d", "")));
+    }
+
+    @Test
+    public void lineTerminatorsOfStreamedSourceTextCannotBeChanged() {
+        var sourceText = SourceText.fromReader("<filename>", new StringReader("a\r\nb"));
+
+        assertThrows(
+            IllegalStateException.class,
+            () -> sourceText.withLineTerminators(LineTerminators.UNIVERSAL)
+        );
+    }
+
+    private static Reader endlessReader(String line) {
+        return new Reader() {
+            private int index = 0;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                // Read a few characters at a time, as from a pipe.
+                var readLength = Math.min(length, 1000);
+                for (var bufferIndex = offset; bufferIndex < offset + readLength; bufferIndex++) {
+                    buffer[bufferIndex] = line.charAt(this.index++ % line.length());
+                }
+                return readLength;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Test
+    public void changingPositionOfCharSequenceDoesNotChangeSourceText() {
+        var sourceText = SourceText.fromString("<filename>", "abcdef");
+
+        ((CharBuffer) sourceText.charSequence()).position(3);
+
+        assertThat(sourceText.charSequence().toString(), equalTo("abcdef"));
+        assertThat(sourceText.charSequence(1, 3).toString(), equalTo("bc"));
+    }
+
+    @Test
+    public void charSequenceOfDecodedSourceTextCannotBeChanged() {
+        var bytes = ByteBuffer.wrap("a\u4e16b".getBytes(StandardCharsets.UTF_8));
+        var sourceText = SourceText.fromByteBuffer("<filename>", bytes, StandardCharsets.UTF_8);
+
+        var charSequence = (CharBuffer) sourceText.charSequence(0, 2);
+
+        assertThrows(ReadOnlyBufferException.class, () -> charSequence.put(0, 'x'));
+        assertThat(sourceText.getCharacter(0), equalTo((int) 'a'));
+    }
+
+    @Test
+    public void sourceTextCanBeReadFromManyThreadsAtOnce() {
+        var builder = new StringBuilder();
+        for (var lineIndex = 0; lineIndex < 1000; lineIndex++) {
+            builder.append("line ").append(lineIndex).append('\n');
+        }
+        var sourceText = SourceText.fromString("<filename>", builder.toString());
+
+        var results = IntStream.range(0, 1000).parallel()
+            .mapToObj(lineIndex -> sourceText.lineColumn(sourceText.lineStart(lineIndex) + 2))
+            .toList();
+
+        for (var lineIndex = 0; lineIndex < 1000; lineIndex++) {
+            assertThat(results.get(lineIndex), equalTo(new SourceLineColumn(lineIndex, 2)));
+        }
+    }
 }
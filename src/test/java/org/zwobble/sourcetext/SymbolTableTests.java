@@ -0,0 +1,155 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class SymbolTableTests {
+    @Test
+    public void symbolsAreGivenIdsInOrder() {
+        var sourceText = SourceText.fromString("<string>", "a bc d");
+        var symbolTable = SymbolTable.create();
+
+        var first = symbolTable.intern(sourceText.sourceRange(0, 1));
+        var second = symbolTable.intern(sourceText.sourceRange(2, 4));
+        var third = symbolTable.intern(sourceText.sourceRange(5, 6));
+
+        assertThat(first, equalTo(0));
+        assertThat(second, equalTo(1));
+        assertThat(third, equalTo(2));
+        assertThat(symbolTable.size(), equalTo(3));
+    }
+
+    @Test
+    public void rangesWithSameCharactersHaveSameSymbolId() {
+        var sourceText = SourceText.fromString("<string>", "ab ab abc");
+        var symbolTable = SymbolTable.create();
+
+        var first = symbolTable.intern(sourceText.sourceRange(0, 2));
+        var second = symbolTable.intern(sourceText.sourceRange(3, 5));
+        var third = symbolTable.intern(sourceText.sourceRange(6, 9));
+
+        assertThat(second, equalTo(first));
+        assertThat(third, equalTo(first + 1));
+        assertThat(symbolTable.size(), equalTo(2));
+    }
+
+    @Test
+    public void rangesAndSequencesWithSameCharactersHaveSameSymbolId() {
+        var sourceText = SourceText.fromString("<string>", "x abc");
+        var symbolTable = SymbolTable.create();
+
+        var first = symbolTable.intern("abc");
+        var second = symbolTable.intern(sourceText.sourceRange(2, 5));
+        var third = symbolTable.intern(new StringBuilder("abc"));
+
+        assertThat(second, equalTo(first));
+        assertThat(third, equalTo(first));
+    }
+
+    @Test
+    public void symbolCanBeFoundFromSymbolId() {
+        var sourceText = SourceText.fromString("<string>", "x abc");
+        var symbolTable = SymbolTable.create();
+        var symbolId = symbolTable.intern(sourceText.sourceRange(2, 5));
+
+        var result = symbolTable.symbol(symbolId);
+
+        assertThat(result, equalTo("abc"));
+    }
+
+    @Test
+    public void whenSymbolIdIsNotInRangeThenSymbolThrowsException() {
+        var symbolTable = SymbolTable.create();
+        symbolTable.intern("a");
+
+        var error = assertThrows(
+            IllegalArgumentException.class,
+            () -> symbolTable.symbol(1)
+        );
+
+        assertThat(error.getMessage(), equalTo("Symbol ID 1 not in range"));
+    }
+
+    @Test
+    public void canInternManySymbols() {
+        var symbolTable = SymbolTable.create();
+
+        for (var index = 0; index < 10000; index++) {
+            assertThat(symbolTable.intern("symbol" + index), equalTo(index));
+        }
+
+        for (var index = 0; index < 10000; index++) {
+            assertThat(symbolTable.intern("symbol" + index), equalTo(index));
+            assertThat(symbolTable.symbol(index), equalTo("symbol" + index));
+        }
+        assertThat(symbolTable.size(), equalTo(10000));
+    }
+
+    @Test
+    public void concurrentSymbolTableGivesSameSymbolIdToSameCharacters() {
+        var sourceText = SourceText.fromString("<string>", "ab ab abc");
+        var symbolTable = SymbolTable.concurrent();
+
+        var first = symbolTable.intern(sourceText.sourceRange(0, 2));
+        var second = symbolTable.intern(sourceText.sourceRange(3, 5));
+        var third = symbolTable.intern(sourceText.sourceRange(6, 9));
+
+        assertThat(second, equalTo(first));
+        assertThat(third == first, equalTo(false));
+        assertThat(symbolTable.symbol(first), equalTo("ab"));
+        assertThat(symbolTable.symbol(third), equalTo("abc"));
+        assertThat(symbolTable.size(), equalTo(2));
+    }
+
+    @Test
+    public void concurrentSymbolTableCanBeUsedFromManyThreads() {
+        var symbolTable = SymbolTable.concurrent();
+        var sourceText = SourceText.fromString(
+            "<string>",
+            IntStream.range(0, 1000).mapToObj(index -> "symbol" + index + " ").reduce("", String::concat)
+        );
+
+        var symbolIds = IntStream.range(0, 8).parallel()
+            .mapToObj(thread -> {
+                var iterator = sourceText.characterIterator();
+                var threadSymbolIds = new int[1000];
+                for (var index = 0; index < 1000; index++) {
+                    var start = iterator.position();
+                    iterator.skipUntil(' ');
+                    threadSymbolIds[index] = symbolTable.intern(start.to(iterator.position()));
+                    iterator.skip();
+                }
+                return threadSymbolIds;
+            })
+            .toList();
+
+        for (var threadSymbolIds : symbolIds) {
+            assertThat(threadSymbolIds.length, equalTo(1000));
+            for (var index = 0; index < 1000; index++) {
+                assertThat(threadSymbolIds[index], equalTo(symbolIds.get(0)[index]));
+                assertThat(symbolTable.symbol(threadSymbolIds[index]), equalTo("symbol" + index));
+            }
+        }
+        assertThat(symbolTable.size(), equalTo(1000));
+    }
+
+    @Test
+    public void concurrentSymbolTableGivesDenseSymbolIds() {
+        var symbolTable = SymbolTable.concurrent();
+
+        var symbolIds = IntStream.range(0, 1000).parallel()
+            .map(index -> symbolTable.intern("symbol" + index))
+            .sorted()
+            .toArray();
+
+        assertThat(symbolTable.size(), equalTo(1000));
+        for (var index = 0; index < 1000; index++) {
+            assertThat(symbolIds[index], equalTo(index));
+        }
+    }
+}
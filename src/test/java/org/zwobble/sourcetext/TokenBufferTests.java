@@ -0,0 +1,121 @@
+package org.zwobble.sourcetext;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.zwobble.precisely.AssertThat.assertThat;
+import static org.zwobble.precisely.Matchers.equalTo;
+
+public class TokenBufferTests {
+    private static final int IDENTIFIER = 0;
+    private static final int WHITESPACE = 1;
+
+    @Test
+    public void tokensCanBeAddedAndReadBack() {
+        var sourceText = SourceText.fromString("<string>", "ab cd");
+        var tokens = TokenBuffer.create(sourceText);
+
+        var first = tokens.add(IDENTIFIER, 0, 2);
+        var second = tokens.add(WHITESPACE, 2, 3);
+
+        assertThat(first, equalTo(0));
+        assertThat(second, equalTo(1));
+        assertThat(tokens.size(), equalTo(2));
+        assertThat(tokens.kind(1), equalTo(WHITESPACE));
+        assertThat(tokens.startCharacterIndex(1), equalTo(2));
+        assertThat(tokens.endCharacterIndex(1), equalTo(3));
+        assertThat(tokens.characterLength(0), equalTo(2));
+    }
+
+    @Test
+    public void tokensCanBeAddedFromIteratorPosition() {
+        var sourceText = SourceText.fromString("<string>", "ab cd");
+        var tokens = TokenBuffer.create(sourceText);
+        var iterator = sourceText.characterIterator();
+
+        while (!iterator.isEnd()) {
+            var start = iterator.characterIndex();
+            if (iterator.peek() == ' ') {
+                iterator.skipWhile(character -> character == ' ');
+                tokens.add(WHITESPACE, start, iterator);
+            } else {
+                iterator.skipWhile(character -> character != ' ');
+                tokens.add(IDENTIFIER, start, iterator);
+            }
+        }
+
+        assertThat(tokens.size(), equalTo(3));
+        assertThat(tokens.charSequence(2).toString(), equalTo("cd"));
+        assertThat(tokens.kind(2), equalTo(IDENTIFIER));
+    }
+
+    @Test
+    public void tokensCanBeReadAsRanges() {
+        var sourceText = SourceText.fromString("<string>", "ab\ncd");
+        var tokens = TokenBuffer.create(sourceText);
+        tokens.add(IDENTIFIER, 3, 5);
+
+        assertThat(tokens.sourceRange(0), equalTo(sourceText.sourceRange(3, 5)));
+        assertThat(tokens.packedSourceRange(0), equalTo(SourceRange.pack(3, 5)));
+        assertThat(tokens.sourceRange(0).toString(), equalTo("<string>:2:1:2:3"));
+    }
+
+    @Test
+    public void tokensCanBeComparedWithoutCopying() {
+        var sourceText = SourceText.fromString("<string>", "ab cd");
+        var tokens = TokenBuffer.create(sourceText);
+        tokens.add(IDENTIFIER, 3, 5);
+        var view = new SourceRangeView();
+
+        assertThat(tokens.contentEquals(0, "cd"), equalTo(true));
+        assertThat(tokens.contentEquals(0, "ab"), equalTo(false));
+        assertThat(tokens.contentEquals(0, "cde"), equalTo(false));
+        assertThat(tokens.view(0, view).contentHashCode(), equalTo("cd".hashCode()));
+    }
+
+    @Test
+    public void bufferGrowsToHoldManyTokens() {
+        var sourceText = SourceText.fromString("<string>", "x".repeat(1000));
+        var tokens = TokenBuffer.create(sourceText);
+
+        for (var index = 0; index < 1000; index++) {
+            tokens.add(index % 2, index, index + 1);
+        }
+
+        assertThat(tokens.size(), equalTo(1000));
+        assertThat(tokens.kind(999), equalTo(1));
+        assertThat(tokens.startCharacterIndex(999), equalTo(999));
+    }
+
+    @Test
+    public void iteratorCanBeMovedToStartOfToken() {
+        var sourceText = SourceText.fromString("<string>", "ab cd");
+        var tokens = TokenBuffer.create(sourceText);
+        tokens.add(IDENTIFIER, 3, 5);
+        var iterator = sourceText.characterIterator();
+
+        tokens.moveToStart(0, iterator);
+
+        assertThat(iterator.characterIndex(), equalTo(3));
+        assertThat(iterator.peek(), equalTo((int) 'c'));
+    }
+
+    @Test
+    public void whenRangeIsBeyondEndThenAddThrowsException() {
+        var sourceText = SourceText.fromString("<string>", "ab");
+        var tokens = TokenBuffer.create(sourceText);
+
+        assertThrows(IllegalArgumentException.class, () -> tokens.add(IDENTIFIER, 1, 3));
+        assertThrows(IllegalArgumentException.class, () -> tokens.add(IDENTIFIER, 2, 1));
+    }
+
+    @Test
+    public void whenTokenIndexIsNotInBufferThenAccessorsThrowException() {
+        var sourceText = SourceText.fromString("<string>", "ab");
+        var tokens = TokenBuffer.create(sourceText);
+        tokens.add(IDENTIFIER, 0, 2);
+
+        assertThrows(IllegalArgumentException.class, () -> tokens.kind(1));
+        assertThrows(IllegalArgumentException.class, () -> tokens.sourceRange(-1));
+    }
+}